@@ -0,0 +1,550 @@
+/**
+ * ConnectionPool is the engine of the pool of connections. Idle connections
+ * are kept in a lock-free deque and the admission of borrowers is controlled
+ * by a fair semaphore, so returning a connection wakes only one waiting thread
+ * instead of all of them. The pool never waits on a monitor, so a virtual
+ * thread that waits for a connection does not pin its carrier thread. Every
+ * borrowed connection is wrapped into a PooledConnection that can be watched
+ * for leaks. The pool starts with minConnections, grows on demand up to
+ * maxConnections and closes the connections that stay idle longer than
+ * idleTimeoutMillis. Idle connections are pinged in the background, and a
+ * connection that stayed idle for a long time is validated once more before it
+ * is given. The first connections are opened according to the WarmupMode, and
+ * getReadiness() tells when the warm-up is over.
+ * @author Alexandra Shapira
+ */
+
+package connection;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import exceptions.PoolExhaustedException;
+
+public class ConnectionPool {
+
+	/** The longest wait for a returned connection before the borrower looks again. */
+	private static final long IDLE_WAIT_MILLIS = 100;
+
+	private final PoolConfig config;
+	private final Deque<PoolEntry> idleConnections = new ConcurrentLinkedDeque<PoolEntry>();
+	private final Set<PooledConnection> givenConnections = Collections
+			.newSetFromMap(new ConcurrentHashMap<PooledConnection, Boolean>());
+	private final AtomicInteger totalConnections = new AtomicInteger();
+	private final Semaphore permits;
+	private final ScheduledExecutorService housekeeper;
+	private final CompletableFuture<Void> readiness;
+	private final ReentrantLock idleLock = new ReentrantLock();
+	private final Condition idleChanged = idleLock.newCondition();
+	private final AtomicInteger waitingForIdle = new AtomicInteger();
+	private volatile boolean demanded;
+
+	/**
+	 * Class constructor that starts the warm-up of the pool and the
+	 * housekeeping thread. Only the SERIAL warm-up blocks the constructor.
+	 * 
+	 * @param config
+	 *            The settings of the pool
+	 */
+
+	public ConnectionPool(PoolConfig config) {
+		this.config = config;
+		// there is one permit for every connection that may be given
+		permits = new Semaphore(config.getMaxConnections(), true);
+		switch (config.getWarmupMode()) {
+		case SERIAL:
+			demanded = true;
+			fillToMinimum();
+			readiness = CompletableFuture.completedFuture(null).thenRun(this::checkWarmedUp);
+			break;
+		case PARALLEL:
+			demanded = true;
+			readiness = warmUpInParallel();
+			break;
+		default:
+			readiness = CompletableFuture.completedFuture(null);
+			break;
+		}
+		housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long period = config.getHousekeepingIntervalMillis();
+		housekeeper.scheduleWithFixedDelay(this::houseKeeping, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * The method opens minConnections at the same time, each one in its own
+	 * thread, so the warm-up takes about as long as opening one connection.
+	 * 
+	 * @return CompletableFuture that is completed when all the attempts are
+	 *         over
+	 */
+
+	private CompletableFuture<Void> warmUpInParallel() {
+		int count = config.getMinConnections();
+		if (count == 0) {
+			return CompletableFuture.completedFuture(null);
+		}
+		ExecutorService warmupExecutor = Executors.newFixedThreadPool(count, runnable -> {
+			Thread thread = new Thread(runnable, "connection-pool-warmup");
+			thread.setDaemon(true);
+			return thread;
+		});
+		CompletableFuture<?>[] attempts = new CompletableFuture<?>[count];
+		for (int i = 0; i < count; i++) {
+			attempts[i] = CompletableFuture.runAsync(this::openIdleConnection, warmupExecutor);
+		}
+		CompletableFuture<Void> warmup = CompletableFuture.allOf(attempts);
+		warmup.whenComplete((result, error) -> warmupExecutor.shutdown());
+		return warmup.thenRun(this::checkWarmedUp);
+	}
+
+	/**
+	 * The warm-up fails if the database did not give even one connection.
+	 */
+
+	private void checkWarmedUp() {
+		if (config.getMinConnections() > 0 && totalConnections.get() == 0) {
+			throw new IllegalStateException("Failed to open connections to " + config.getConnectionString());
+		}
+	}
+
+	/**
+	 * The method gets the future that is completed when the warm-up of the
+	 * pool is over. The future fails if no connection could be opened.
+	 * 
+	 * @return CompletableFuture of the warm-up
+	 */
+
+	public CompletableFuture<Void> getReadiness() {
+		return readiness;
+	}
+
+	private PoolEntry openConnection() throws SQLException {
+		Connection connection = DriverManager.getConnection(config.getConnectionString(), config.getUserName(),
+				config.getPassword());
+		if (config.isReadOnly()) {
+			connection.setReadOnly(true);
+		}
+		return new PoolEntry(connection, config.getStatementCacheSize());
+	}
+
+	/**
+	 * The method gives the connection from the pool of connections waiting no
+	 * longer than the default acquire timeout.
+	 * 
+	 * @return Connection from the pool of Connections.
+	 * @throws PoolExhaustedException
+	 *             if no connection became free in time
+	 */
+
+	public Connection getConnection() {
+		return getConnection(config.getAcquireTimeoutMillis());
+	}
+
+	/**
+	 * The method gives the connection from the pool of connections. If there
+	 * is no idle connection the calling thread waits until another thread
+	 * returns one, but no longer than the timeout. A zero timeout rejects the
+	 * request at once when the pool is empty.
+	 * 
+	 * @param timeoutMillis
+	 *            The maximum time to wait in milliseconds
+	 * @return Connection from the pool of Connections.
+	 * @throws PoolExhaustedException
+	 *             if no connection became free in time
+	 */
+
+	public Connection getConnection(long timeoutMillis) {
+		demanded = true;
+		try {
+			if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+				throw new PoolExhaustedException(timeoutMillis);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+		PoolEntry entry = takeValidEntry();
+		Throwable borrowStack = null;
+		if (config.getLeakDetectionThresholdMillis() > 0) {
+			borrowStack = new Exception("The connection was borrowed here");
+		}
+		PooledConnection givenConnection = new PooledConnection(this, entry, borrowStack);
+		givenConnections.add(givenConnection);
+		return givenConnection;
+	}
+
+	/**
+	 * The method takes the connection for the thread that holds a permit. Only
+	 * the connection that stayed idle longer than validateAfterIdleMillis is
+	 * validated, so the usual borrow does not pay for a round trip to the
+	 * database. A broken connection is closed and the next one is taken.
+	 * 
+	 * @return PoolEntry for the borrower
+	 */
+
+	private PoolEntry takeValidEntry() {
+		while (true) {
+			PoolEntry entry = idleConnections.pollFirst();
+			if (entry == null) {
+				return growOrTakeIdle();
+			}
+			long idleFor = System.currentTimeMillis() - entry.getLastCheckedAt();
+			if (idleFor < config.getValidateAfterIdleMillis() || entry.validate(config.getValidationTimeoutSeconds())) {
+				return entry;
+			}
+			totalConnections.decrementAndGet();
+			close(entry);
+		}
+	}
+
+	/**
+	 * The method is called by the thread that holds a permit but found no idle
+	 * connection. It opens a new connection if the pool is smaller than
+	 * maxConnections, otherwise a connection is just being returned or
+	 * validated by the housekeeper, and the thread waits until it appears in
+	 * the deque.
+	 * 
+	 * @return PoolEntry for the borrower
+	 */
+
+	private PoolEntry growOrTakeIdle() {
+		while (true) {
+			int total = totalConnections.get();
+			if (total < config.getMaxConnections()) {
+				if (totalConnections.compareAndSet(total, total + 1)) {
+					try {
+						return openConnection();
+					} catch (SQLException e) {
+						totalConnections.decrementAndGet();
+						permits.release();
+						throw new RuntimeException(e);
+					}
+				}
+			} else {
+				PoolEntry entry = idleConnections.pollFirst();
+				if (entry != null) {
+					return entry;
+				}
+				awaitIdleChange();
+			}
+		}
+	}
+
+	/**
+	 * The method waits until a connection is put into the deque or the pool
+	 * shrinks, but no longer than IDLE_WAIT_MILLIS. The thread holds a permit,
+	 * so it gives the permit back if it is interrupted.
+	 */
+
+	private void awaitIdleChange() {
+		idleLock.lock();
+		waitingForIdle.incrementAndGet();
+		try {
+			// the change could happen before the lock was taken
+			if (idleConnections.isEmpty() && totalConnections.get() >= config.getMaxConnections()) {
+				idleChanged.await(IDLE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			permits.release();
+			throw new RuntimeException(e);
+		} finally {
+			waitingForIdle.decrementAndGet();
+			idleLock.unlock();
+		}
+	}
+
+	/**
+	 * The method wakes the borrowers that wait in awaitIdleChange. It takes the
+	 * lock only if there are such borrowers, so the usual return of a
+	 * connection does not.
+	 */
+
+	private void signalIdleChange() {
+		if (waitingForIdle.get() > 0) {
+			idleLock.lock();
+			try {
+				idleChanged.signalAll();
+			} finally {
+				idleLock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * The method returns given connection to the pool and hands the permit
+	 * over to a single waiting thread. The transaction that was left open is
+	 * rolled back and the auto-commit mode is restored. Returning the same
+	 * connection twice has no effect.
+	 * 
+	 * @param returnedConnection
+	 *            is the Connection that must be returned.
+	 */
+
+	public void returnConnection(Connection returnedConnection) {
+		if (!givenConnections.remove(returnedConnection)) {
+			return;
+		}
+		PooledConnection pooledConnection = (PooledConnection) returnedConnection;
+		PoolEntry entry = pooledConnection.detach();
+		if (entry == null) {
+			// it was reclaimed, the permit is already released
+			return;
+		}
+		if (pooledConnection.isAutoCommitChanged() && !restoreAutoCommit(entry)) {
+			totalConnections.decrementAndGet();
+			close(entry);
+			signalIdleChange();
+			permits.release();
+			return;
+		}
+		entry.touch();
+		// the most recently used connection is given first, so the
+		// connections at the end of the deque are the ones to evict
+		idleConnections.offerFirst(entry);
+		signalIdleChange();
+		permits.release();
+	}
+
+	private static boolean restoreAutoCommit(PoolEntry entry) {
+		try {
+			Connection connection = entry.getConnection();
+			if (!connection.getAutoCommit()) {
+				connection.rollback();
+				connection.setAutoCommit(true);
+			}
+			return true;
+		} catch (SQLException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * The method gets the number of the open connections (idle and given).
+	 * 
+	 * @return number of connections
+	 */
+
+	public int getTotalConnections() {
+		return totalConnections.get();
+	}
+
+	/**
+	 * The method gets the maximal number of connections of the pool.
+	 * 
+	 * @return maxConnections from the pool settings
+	 */
+
+	public int getMaxConnections() {
+		return config.getMaxConnections();
+	}
+
+	/**
+	 * The method gets the number of the idle connections.
+	 * 
+	 * @return number of connections
+	 */
+
+	public int getIdleConnections() {
+		return idleConnections.size();
+	}
+
+	private void houseKeeping() {
+		if (config.getLeakDetectionThresholdMillis() > 0) {
+			detectLeaks();
+		}
+		evictIdleConnections();
+		keepAlive();
+		if (demanded) {
+			fillToMinimum();
+		}
+	}
+
+	/**
+	 * The method validates the idle connections that were not checked during
+	 * keepAliveIntervalMillis, so they are not closed by the database
+	 * (wait_timeout), and replaces the broken ones by new connections. The
+	 * connection is taken out of the deque while it is validated, so nobody
+	 * can borrow it at the same time. The borrowers that wait for it are
+	 * woken when it is put back or replaced.
+	 */
+
+	private void keepAlive() {
+		long now = System.currentTimeMillis();
+		List<PoolEntry> toCheck = new ArrayList<PoolEntry>();
+		for (PoolEntry entry : idleConnections) {
+			if (now - entry.getLastCheckedAt() >= config.getKeepAliveIntervalMillis()) {
+				toCheck.add(entry);
+			}
+		}
+		for (PoolEntry entry : toCheck) {
+			if (!idleConnections.removeFirstOccurrence(entry)) {
+				// it was borrowed meanwhile
+				continue;
+			}
+			if (entry.validate(config.getValidationTimeoutSeconds())) {
+				idleConnections.offerLast(entry);
+				signalIdleChange();
+				continue;
+			}
+			close(entry);
+			try {
+				idleConnections.offerLast(openConnection());
+			} catch (SQLException e) {
+				totalConnections.decrementAndGet();
+				e.printStackTrace();
+			} finally {
+				signalIdleChange();
+			}
+		}
+	}
+
+	/**
+	 * The method closes the connections that were not used longer than
+	 * idleTimeoutMillis while the pool is bigger than minConnections. The
+	 * whole deque is checked: the returned connections are put at the head,
+	 * but the validated and the new connections of the housekeeper are put at
+	 * the tail, so a fresh connection may stand before the old ones.
+	 */
+
+	private void evictIdleConnections() {
+		long now = System.currentTimeMillis();
+		Iterator<PoolEntry> oldestFirst = idleConnections.descendingIterator();
+		while (oldestFirst.hasNext() && totalConnections.get() > config.getMinConnections()) {
+			PoolEntry entry = oldestFirst.next();
+			if (now - entry.getLastUsedAt() < config.getIdleTimeoutMillis()) {
+				continue;
+			}
+			if (idleConnections.removeLastOccurrence(entry)) {
+				totalConnections.decrementAndGet();
+				close(entry);
+			}
+		}
+	}
+
+	/**
+	 * The method opens new idle connections while the pool is smaller than
+	 * minConnections.
+	 */
+
+	private void fillToMinimum() {
+		while (openIdleConnection()) {
+			// one connection per iteration
+		}
+	}
+
+	/**
+	 * The method opens one idle connection if the pool is smaller than
+	 * minConnections.
+	 * 
+	 * @return true if the connection was opened
+	 */
+
+	private boolean openIdleConnection() {
+		while (true) {
+			int total = totalConnections.get();
+			if (total >= config.getMinConnections()) {
+				return false;
+			}
+			if (totalConnections.compareAndSet(total, total + 1)) {
+				try {
+					idleConnections.offerLast(openConnection());
+					signalIdleChange();
+					return true;
+				} catch (SQLException e) {
+					totalConnections.decrementAndGet();
+					e.printStackTrace();
+					return false;
+				}
+			}
+		}
+	}
+
+	/**
+	 * The method reports the connections that are borrowed longer than the
+	 * leak detection threshold and, if it is allowed by the settings, takes
+	 * them back by force: the physical connection is closed and the pool
+	 * opens a new one when it is needed. Every borrow is reported only once.
+	 * Some borrows are long by design (a stream of coupons that is read by a
+	 * slow consumer, the chunked removal of a company), so the threshold must
+	 * be longer than them, otherwise reclaimLeakedConnections closes their
+	 * connections in the middle of the work.
+	 */
+
+	private void detectLeaks() {
+		long now = System.currentTimeMillis();
+		for (PooledConnection connection : givenConnections) {
+			long borrowedFor = now - connection.getBorrowedAt();
+			if (borrowedFor < config.getLeakDetectionThresholdMillis() || !connection.markLeakReported()) {
+				continue;
+			}
+			System.err.println("Connection leak: the connection is borrowed for " + borrowedFor + " ms");
+			connection.getBorrowStack().printStackTrace();
+			if (config.isReclaimLeakedConnections()) {
+				reclaim(connection);
+			}
+		}
+	}
+
+	private void reclaim(PooledConnection connection) {
+		if (!givenConnections.remove(connection)) {
+			return;
+		}
+		PoolEntry entry = connection.detach();
+		if (entry == null) {
+			return;
+		}
+		totalConnections.decrementAndGet();
+		close(entry);
+		signalIdleChange();
+		permits.release();
+	}
+
+	/**
+	 * The method stops the housekeeping thread and closes all connections.
+	 */
+
+	public void closeAllConnections() {
+		housekeeper.shutdownNow();
+		for (PoolEntry entry : idleConnections) {
+			close(entry);
+		}
+		for (PooledConnection connection : givenConnections) {
+			close(connection.getEntry());
+		}
+	}
+
+	private static void close(PoolEntry entry) {
+		if (entry == null) {
+			return;
+		}
+		try {
+			entry.getConnection().close();
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -1,26 +1,29 @@
 /**
  * ConnectionPoolSingleton is a singleton class which allows to establish connection between MySQL database and the 
- * CouponSystem application. 
+ * CouponSystem application. Besides the pool of the primary database it may keep the pools of read-only replicas
+ * (replica1.connectionUrl, replica2.connectionUrl, ... in db.properties) that are used by the read methods.
  * @author Alexandra Shapira
  */
 
 package connection;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.io.IOException;
 import java.io.InputStream;
 import java.sql.*;
 
+import exceptions.PoolExhaustedException;
+
 public class ConnectionPoolSingleton {
 
-	private int maxConnections;
-	private List<Connection> connections = new ArrayList<Connection>(maxConnections);
-	private String connectionString;
-	private String userName;
-	private String password;
-	private List<Connection> givenConnections = new ArrayList<Connection>(maxConnections);
+	private ConnectionPool primaryPool;
+	private List<ConnectionPool> replicaPools = new ArrayList<ConnectionPool>();
+	private AtomicInteger nextReplica = new AtomicInteger();
 
 	/**
 	 * The inner class ConnectionPoolSingletonHolder was designed as a part of
@@ -41,44 +44,73 @@ public class ConnectionPoolSingleton {
 	 */
 
 	private ConnectionPoolSingleton() {
+		Properties props = new Properties();
 		try {
 			InputStream is = this.getClass().getClassLoader().getResourceAsStream("db.properties");
-			Properties props = new Properties();
 			props.load(is);
-			maxConnections = Integer.parseInt(props.getProperty("maxConnection", "10"));
-			connectionString = props.getProperty("connectionUrl");
-			userName = props.getProperty("userName");
-			password = props.getProperty("password");
 		} catch (IOException ex) {
 			throw new RuntimeException(ex);
 		}
-		for (int i = 0; i < maxConnections; i++) {
-			try {
-				connections.add(DriverManager.getConnection(connectionString, userName, password));
-			} catch (SQLException e) {
-				e.printStackTrace();
-			}
+		primaryPool = new ConnectionPool(PoolConfig.fromProperties(props, ""));
+		for (int i = 1; props.getProperty("replica" + i + ".connectionUrl") != null; i++) {
+			replicaPools.add(new ConnectionPool(PoolConfig.fromProperties(props, "replica" + i + ".")));
 		}
 	}
 
 	/**
-	 * The method gives the connection from the pool of connections and adds it
-	 * to the givenConnections list.
+	 * The method gives the connection from the pool of connections. The caller
+	 * waits no longer than acquireTimeoutMillis from db.properties.
+	 * 
+	 * @return Connection from the pool of Connections.
+	 * @throws PoolExhaustedException
+	 *             if no connection became free in time
+	 */
+
+	public Connection getConnection() {
+		return primaryPool.getConnection();
+	}
+
+	/**
+	 * The method gives the connection from the pool of connections waiting no
+	 * longer than the given timeout.
 	 * 
+	 * @param timeout
+	 *            The maximum time to wait
 	 * @return Connection from the pool of Connections.
+	 * @throws PoolExhaustedException
+	 *             if no connection became free in time
 	 */
 
-	public synchronized Connection getConnection() {
-		while (connections.size() == 0) {
-			try {
-				this.wait();
-			} catch (InterruptedException e) {
-				throw new RuntimeException(e);
-			}
+	public Connection getConnection(Duration timeout) {
+		return primaryPool.getConnection(timeout.toMillis());
+	}
+
+	/**
+	 * The method gives the read-only connection from one of the replica pools
+	 * taking them in turn. If there are no replicas or the replica failed to
+	 * open a connection, the connection of the primary pool is given. The
+	 * caller must not write through this connection and should be ready to
+	 * read data that is a bit behind the primary database.
+	 * 
+	 * @return Connection for reading
+	 * @throws PoolExhaustedException
+	 *             if no connection became free in time
+	 */
+
+	public Connection getReadConnection() {
+		if (replicaPools.isEmpty()) {
+			return primaryPool.getConnection();
+		}
+		ConnectionPool replicaPool = replicaPools
+				.get(Math.floorMod(nextReplica.getAndIncrement(), replicaPools.size()));
+		try {
+			return replicaPool.getConnection();
+		} catch (PoolExhaustedException e) {
+			throw e;
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+			return primaryPool.getConnection();
 		}
-		Connection givenConnection = connections.remove(0);
-		givenConnections.add(givenConnection);
-		return givenConnection;
 	}
 
 	/**
@@ -88,33 +120,47 @@ public class ConnectionPoolSingleton {
 	 *            is the Connection that must be returned.
 	 */
 
-	public synchronized void returnConnection(Connection returnedConnection) {
-		boolean removed = givenConnections.remove(returnedConnection);
-		if (removed) {
-			connections.add(returnedConnection);
+	public void returnConnection(Connection returnedConnection) {
+		// the pooled connection knows the pool it belongs to
+		if (returnedConnection instanceof PooledConnection) {
+			((PooledConnection) returnedConnection).close();
 		}
-		this.notifyAll();
 	}
 
 	/**
-	 * The method closes all connections.
+	 * The method gets the future that is completed when the warm-up of the
+	 * pool is over.
+	 * 
+	 * @return CompletableFuture of the warm-up
 	 */
 
-	public void closeAllConnections() {
-		for (Connection connection : connections) {
-			try {
-				connection.close();
-			} catch (SQLException e) {
-				e.printStackTrace();
-			}
+	public CompletableFuture<Void> getReadiness() {
+		return primaryPool.getReadiness();
+	}
+
+	/**
+	 * The method gets the maximal number of connections of the primary pool
+	 * and the replica pools together.
+	 * 
+	 * @return number of connections
+	 */
+
+	public int getMaxConnections() {
+		int maxConnections = primaryPool.getMaxConnections();
+		for (ConnectionPool replicaPool : replicaPools) {
+			maxConnections += replicaPool.getMaxConnections();
 		}
-		for (Connection connection : givenConnections) {
-			try {
-				connection.close();
-			} catch (SQLException e) {
-				e.printStackTrace();
-			}
+		return maxConnections;
+	}
 
+	/**
+	 * The method closes all connections.
+	 */
+
+	public void closeAllConnections() {
+		primaryPool.closeAllConnections();
+		for (ConnectionPool replicaPool : replicaPools) {
+			replicaPool.closeAllConnections();
 		}
 	}
 }
@@ -0,0 +1,140 @@
+/**
+ * PoolConfig holds the settings of a connection pool that are read from the
+ * db.properties file.
+ * @author Alexandra Shapira
+ */
+
+package connection;
+
+import java.util.Properties;
+
+public class PoolConfig {
+
+	private String connectionString;
+	private String userName;
+	private String password;
+	private int minConnections;
+	private int maxConnections;
+	private long idleTimeoutMillis;
+	private long acquireTimeoutMillis;
+	private long leakDetectionThresholdMillis;
+	private boolean reclaimLeakedConnections;
+	private long housekeepingIntervalMillis;
+	private int validationTimeoutSeconds;
+	private long validateAfterIdleMillis;
+	private long keepAliveIntervalMillis;
+	private int statementCacheSize;
+	private WarmupMode warmupMode;
+	private boolean readOnly;
+
+	/**
+	 * The method creates PoolConfig from the properties. All the keys are read
+	 * with the given prefix, so the same file may describe several pools. A
+	 * key that is missing with the prefix is taken from the primary pool
+	 * settings.
+	 * 
+	 * @param props
+	 *            The properties loaded from db.properties
+	 * @param prefix
+	 *            The prefix of the keys (empty for the primary pool)
+	 * @return PoolConfig object
+	 */
+
+	public static PoolConfig fromProperties(Properties props, String prefix) {
+		PoolConfig config = new PoolConfig();
+		config.maxConnections = Integer.parseInt(property(props, prefix, "maxConnections", "10"));
+		config.minConnections = Math.min(config.maxConnections,
+				Integer.parseInt(property(props, prefix, "minConnections", "2")));
+		config.idleTimeoutMillis = Long.parseLong(property(props, prefix, "idleTimeoutMillis", "600000"));
+		config.acquireTimeoutMillis = Long.parseLong(property(props, prefix, "acquireTimeoutMillis", "30000"));
+		config.leakDetectionThresholdMillis = Long
+				.parseLong(property(props, prefix, "leakDetectionThresholdMillis", "0"));
+		config.reclaimLeakedConnections = Boolean
+				.parseBoolean(property(props, prefix, "reclaimLeakedConnections", "false"));
+		config.housekeepingIntervalMillis = Long
+				.parseLong(property(props, prefix, "housekeepingIntervalMillis", "5000"));
+		config.validationTimeoutSeconds = Integer
+				.parseInt(property(props, prefix, "validationTimeoutSeconds", "2"));
+		config.validateAfterIdleMillis = Long
+				.parseLong(property(props, prefix, "validateAfterIdleMillis", "30000"));
+		config.keepAliveIntervalMillis = Long
+				.parseLong(property(props, prefix, "keepAliveIntervalMillis", "120000"));
+		config.statementCacheSize = Integer.parseInt(property(props, prefix, "statementCacheSize", "50"));
+		config.warmupMode = WarmupMode.valueOf(property(props, prefix, "warmupMode", "PARALLEL"));
+		config.connectionString = property(props, prefix, "connectionUrl", null);
+		config.userName = property(props, prefix, "userName", null);
+		config.password = property(props, prefix, "password", null);
+		// the pools with a prefix are replicas, so they are read only by default
+		config.readOnly = Boolean.parseBoolean(props.getProperty(prefix + "readOnly", String.valueOf(!prefix.isEmpty())));
+		return config;
+	}
+
+	private static String property(Properties props, String prefix, String key, String defaultValue) {
+		return props.getProperty(prefix + key, props.getProperty(key, defaultValue));
+	}
+
+	public String getConnectionString() {
+		return connectionString;
+	}
+
+	public String getUserName() {
+		return userName;
+	}
+
+	public String getPassword() {
+		return password;
+	}
+
+	public int getMinConnections() {
+		return minConnections;
+	}
+
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+
+	public long getIdleTimeoutMillis() {
+		return idleTimeoutMillis;
+	}
+
+	public long getAcquireTimeoutMillis() {
+		return acquireTimeoutMillis;
+	}
+
+	public long getLeakDetectionThresholdMillis() {
+		return leakDetectionThresholdMillis;
+	}
+
+	public boolean isReclaimLeakedConnections() {
+		return reclaimLeakedConnections;
+	}
+
+	public long getHousekeepingIntervalMillis() {
+		return housekeepingIntervalMillis;
+	}
+
+	public int getValidationTimeoutSeconds() {
+		return validationTimeoutSeconds;
+	}
+
+	public long getValidateAfterIdleMillis() {
+		return validateAfterIdleMillis;
+	}
+
+	public long getKeepAliveIntervalMillis() {
+		return keepAliveIntervalMillis;
+	}
+
+	public int getStatementCacheSize() {
+		return statementCacheSize;
+	}
+
+	public WarmupMode getWarmupMode() {
+		return warmupMode;
+	}
+
+	public boolean isReadOnly() {
+		return readOnly;
+	}
+
+}
@@ -0,0 +1,95 @@
+/**
+ * PoolEntry keeps a physical connection of the pool together with the
+ * information the pool needs about it.
+ * @author Alexandra Shapira
+ */
+
+package connection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+class PoolEntry {
+
+	private final Connection connection;
+	private final StatementCache statementCache;
+	private volatile long lastUsedAt;
+	private volatile long lastCheckedAt;
+
+	PoolEntry(Connection connection, int statementCacheSize) {
+		this.connection = connection;
+		this.statementCache = new StatementCache(statementCacheSize);
+		this.lastUsedAt = System.currentTimeMillis();
+		this.lastCheckedAt = lastUsedAt;
+	}
+
+	Connection getConnection() {
+		return connection;
+	}
+
+	/**
+	 * The method prepares the statement through the statement cache of the
+	 * connection.
+	 *
+	 * @param owner
+	 *            The PooledConnection that the statement is given through
+	 * @param sql
+	 *            The SQL text
+	 * @return PreparedStatement
+	 * @throws SQLException
+	 */
+
+	PreparedStatement prepareStatement(Connection owner, String sql) throws SQLException {
+		return statementCache.prepare(connection, owner, sql);
+	}
+
+	/**
+	 * The method gets the time when the connection was returned to the pool
+	 * last time.
+	 *
+	 * @return time in milliseconds
+	 */
+
+	long getLastUsedAt() {
+		return lastUsedAt;
+	}
+
+	/**
+	 * The method gets the time when the connection was known to be alive last
+	 * time: it was returned to the pool or passed the validation.
+	 *
+	 * @return time in milliseconds
+	 */
+
+	long getLastCheckedAt() {
+		return lastCheckedAt;
+	}
+
+	void touch() {
+		lastUsedAt = System.currentTimeMillis();
+		lastCheckedAt = lastUsedAt;
+	}
+
+	/**
+	 * The method checks if the physical connection is still alive and
+	 * remembers the time of the successful check.
+	 *
+	 * @param timeoutSeconds
+	 *            The time to wait for the database answer
+	 * @return true if the connection is valid
+	 */
+
+	boolean validate(int timeoutSeconds) {
+		try {
+			if (connection.isValid(timeoutSeconds)) {
+				lastCheckedAt = System.currentTimeMillis();
+				return true;
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,432 @@
+/**
+ * PooledConnection is the Connection that the pool gives to its users. It
+ * delegates all the calls to the physical connection, remembers when and where
+ * it was borrowed and returns the physical connection to the pool on close(),
+ * so the DAO code can use it in try-with-resources. prepareStatement(String)
+ * uses the statement cache of the physical connection.
+ * @author Alexandra Shapira
+ */
+
+package connection;
+
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.SQLClientInfoException;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Struct;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class PooledConnection implements Connection {
+
+	private final ConnectionPool pool;
+	private final long borrowedAt;
+	private final Throwable borrowStack;
+	private final AtomicReference<PoolEntry> entry;
+	private final AtomicBoolean leakReported = new AtomicBoolean();
+	private boolean autoCommitChanged;
+
+	/**
+	 * Class constructor that is used by the pool when the connection is
+	 * borrowed.
+	 *
+	 * @param pool
+	 *            The pool the connection belongs to
+	 * @param entry
+	 *            The physical connection
+	 * @param borrowStack
+	 *            The stack of the borrowing thread or null if leak detection
+	 *            is off
+	 */
+
+	PooledConnection(ConnectionPool pool, PoolEntry entry, Throwable borrowStack) {
+		this.pool = pool;
+		this.entry = new AtomicReference<PoolEntry>(entry);
+		this.borrowStack = borrowStack;
+		this.borrowedAt = System.currentTimeMillis();
+	}
+
+	/**
+	 * The method gets the time when the connection was borrowed.
+	 *
+	 * @return time in milliseconds
+	 */
+
+	public long getBorrowedAt() {
+		return borrowedAt;
+	}
+
+	/**
+	 * The method gets the stack of the thread that borrowed the connection.
+	 *
+	 * @return Throwable with the stack or null if leak detection is off
+	 */
+
+	public Throwable getBorrowStack() {
+		return borrowStack;
+	}
+
+	/**
+	 * The method marks the connection as reported by the leak detection, so
+	 * the same borrow is reported only once.
+	 *
+	 * @return true if the connection was not reported before
+	 */
+
+	boolean markLeakReported() {
+		return leakReported.compareAndSet(false, true);
+	}
+
+	/**
+	 * The method checks if the user switched the auto-commit mode, so the pool
+	 * has to restore it when the connection is returned.
+	 *
+	 * @return true if setAutoCommit was called
+	 */
+
+	boolean isAutoCommitChanged() {
+		return autoCommitChanged;
+	}
+
+	PoolEntry getEntry() {
+		return entry.get();
+	}
+
+	/**
+	 * The method detaches the physical connection, after that every call
+	 * except close() fails.
+	 *
+	 * @return the physical connection or null if it was detached before
+	 */
+
+	PoolEntry detach() {
+		return entry.getAndSet(null);
+	}
+
+	private PoolEntry currentEntry() throws SQLException {
+		PoolEntry current = entry.get();
+		if (current == null) {
+			throw new SQLException("The connection was returned to the pool");
+		}
+		return current;
+	}
+
+	private Connection delegate() throws SQLException {
+		return currentEntry().getConnection();
+	}
+
+	/**
+	 * The method returns the connection to the pool instead of closing it.
+	 */
+
+	@Override
+	public void close() {
+		pool.returnConnection(this);
+	}
+
+	@Override
+	public boolean isClosed() throws SQLException {
+		return entry.get() == null || delegate().isClosed();
+	}
+
+	@Override
+	public Statement createStatement() throws SQLException {
+		return delegate().createStatement();
+	}
+
+	/**
+	 * The method gives the prepared statement from the statement cache of the
+	 * physical connection. The statement must not be used after the connection
+	 * is returned to the pool.
+	 */
+
+	@Override
+	public PreparedStatement prepareStatement(String sql) throws SQLException {
+		return currentEntry().prepareStatement(this, sql);
+	}
+
+	@Override
+	public CallableStatement prepareCall(String sql) throws SQLException {
+		return delegate().prepareCall(sql);
+	}
+
+	@Override
+	public String nativeSQL(String sql) throws SQLException {
+		return delegate().nativeSQL(sql);
+	}
+
+	@Override
+	public void setAutoCommit(boolean autoCommit) throws SQLException {
+		delegate().setAutoCommit(autoCommit);
+		autoCommitChanged = true;
+	}
+
+	@Override
+	public boolean getAutoCommit() throws SQLException {
+		return delegate().getAutoCommit();
+	}
+
+	@Override
+	public void commit() throws SQLException {
+		delegate().commit();
+	}
+
+	@Override
+	public void rollback() throws SQLException {
+		delegate().rollback();
+	}
+
+	@Override
+	public DatabaseMetaData getMetaData() throws SQLException {
+		return delegate().getMetaData();
+	}
+
+	@Override
+	public void setReadOnly(boolean readOnly) throws SQLException {
+		delegate().setReadOnly(readOnly);
+	}
+
+	@Override
+	public boolean isReadOnly() throws SQLException {
+		return delegate().isReadOnly();
+	}
+
+	@Override
+	public void setCatalog(String catalog) throws SQLException {
+		delegate().setCatalog(catalog);
+	}
+
+	@Override
+	public String getCatalog() throws SQLException {
+		return delegate().getCatalog();
+	}
+
+	@Override
+	public void setTransactionIsolation(int level) throws SQLException {
+		delegate().setTransactionIsolation(level);
+	}
+
+	@Override
+	public int getTransactionIsolation() throws SQLException {
+		return delegate().getTransactionIsolation();
+	}
+
+	@Override
+	public SQLWarning getWarnings() throws SQLException {
+		return delegate().getWarnings();
+	}
+
+	@Override
+	public void clearWarnings() throws SQLException {
+		delegate().clearWarnings();
+	}
+
+	@Override
+	public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+		return delegate().createStatement(resultSetType, resultSetConcurrency);
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency)
+			throws SQLException {
+		return delegate().prepareStatement(sql, resultSetType, resultSetConcurrency);
+	}
+
+	@Override
+	public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency)
+			throws SQLException {
+		return delegate().prepareCall(sql, resultSetType, resultSetConcurrency);
+	}
+
+	@Override
+	public Map<String, Class<?>> getTypeMap() throws SQLException {
+		return delegate().getTypeMap();
+	}
+
+	@Override
+	public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
+		delegate().setTypeMap(map);
+	}
+
+	@Override
+	public void setHoldability(int holdability) throws SQLException {
+		delegate().setHoldability(holdability);
+	}
+
+	@Override
+	public int getHoldability() throws SQLException {
+		return delegate().getHoldability();
+	}
+
+	@Override
+	public Savepoint setSavepoint() throws SQLException {
+		return delegate().setSavepoint();
+	}
+
+	@Override
+	public Savepoint setSavepoint(String name) throws SQLException {
+		return delegate().setSavepoint(name);
+	}
+
+	@Override
+	public void rollback(Savepoint savepoint) throws SQLException {
+		delegate().rollback(savepoint);
+	}
+
+	@Override
+	public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+		delegate().releaseSavepoint(savepoint);
+	}
+
+	@Override
+	public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability)
+			throws SQLException {
+		return delegate().createStatement(resultSetType, resultSetConcurrency, resultSetHoldability);
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency,
+			int resultSetHoldability) throws SQLException {
+		return delegate().prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+	}
+
+	@Override
+	public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency,
+			int resultSetHoldability) throws SQLException {
+		return delegate().prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+		return delegate().prepareStatement(sql, autoGeneratedKeys);
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+		return delegate().prepareStatement(sql, columnIndexes);
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+		return delegate().prepareStatement(sql, columnNames);
+	}
+
+	@Override
+	public Clob createClob() throws SQLException {
+		return delegate().createClob();
+	}
+
+	@Override
+	public Blob createBlob() throws SQLException {
+		return delegate().createBlob();
+	}
+
+	@Override
+	public NClob createNClob() throws SQLException {
+		return delegate().createNClob();
+	}
+
+	@Override
+	public SQLXML createSQLXML() throws SQLException {
+		return delegate().createSQLXML();
+	}
+
+	@Override
+	public boolean isValid(int timeout) throws SQLException {
+		return entry.get() != null && delegate().isValid(timeout);
+	}
+
+	@Override
+	public void setClientInfo(String name, String value) throws SQLClientInfoException {
+		try {
+			delegate().setClientInfo(name, value);
+		} catch (SQLClientInfoException e) {
+			throw e;
+		} catch (SQLException e) {
+			throw new SQLClientInfoException(e.getMessage(), null, e);
+		}
+	}
+
+	@Override
+	public void setClientInfo(Properties properties) throws SQLClientInfoException {
+		try {
+			delegate().setClientInfo(properties);
+		} catch (SQLClientInfoException e) {
+			throw e;
+		} catch (SQLException e) {
+			throw new SQLClientInfoException(e.getMessage(), null, e);
+		}
+	}
+
+	@Override
+	public String getClientInfo(String name) throws SQLException {
+		return delegate().getClientInfo(name);
+	}
+
+	@Override
+	public Properties getClientInfo() throws SQLException {
+		return delegate().getClientInfo();
+	}
+
+	@Override
+	public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
+		return delegate().createArrayOf(typeName, elements);
+	}
+
+	@Override
+	public Struct createStruct(String typeName, Object[] attributes) throws SQLException {
+		return delegate().createStruct(typeName, attributes);
+	}
+
+	@Override
+	public void setSchema(String schema) throws SQLException {
+		delegate().setSchema(schema);
+	}
+
+	@Override
+	public String getSchema() throws SQLException {
+		return delegate().getSchema();
+	}
+
+	@Override
+	public void abort(Executor executor) throws SQLException {
+		delegate().abort(executor);
+	}
+
+	@Override
+	public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+		delegate().setNetworkTimeout(executor, milliseconds);
+	}
+
+	@Override
+	public int getNetworkTimeout() throws SQLException {
+		return delegate().getNetworkTimeout();
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		return delegate().unwrap(iface);
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		return iface.isInstance(this) || delegate().isWrapperFor(iface);
+	}
+
+}
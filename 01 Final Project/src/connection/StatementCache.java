@@ -0,0 +1,182 @@
+/**
+ * StatementCache keeps the prepared statements of one physical connection, so
+ * the same SQL is parsed and prepared only once. The cache is an LRU map keyed
+ * by the SQL text with a bounded size; the evicted statement is closed. The
+ * statements are given as proxies whose close() only closes the result sets
+ * and resets the statement (parameters, batch, fetch size, max rows, query
+ * timeout), so the user may close them as usual and the next user gets a
+ * clean statement. getConnection() of the proxy gives the PooledConnection,
+ * so the physical connection never leaves the pool. The cache is not thread
+ * safe because a connection is used by one thread at a time.
+ * @author Alexandra Shapira
+ */
+
+package connection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+class StatementCache {
+
+	private final int maxSize;
+	private final Map<String, CachedStatement> statements;
+
+	StatementCache(int maxSize) {
+		this.maxSize = maxSize;
+		this.statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+				if (size() > StatementCache.this.maxSize) {
+					eldest.getValue().closeStatement();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * The method gets the cached statement for the SQL or prepares a new one.
+	 * 
+	 * @param connection
+	 *            The physical connection
+	 * @param owner
+	 *            The PooledConnection the statement is given through
+	 * @param sql
+	 *            The SQL text
+	 * @return PreparedStatement with cleared parameters
+	 * @throws SQLException
+	 */
+
+	PreparedStatement prepare(Connection connection, Connection owner, String sql) throws SQLException {
+		if (maxSize <= 0) {
+			return connection.prepareStatement(sql);
+		}
+		CachedStatement cached = statements.get(sql);
+		if (cached == null || cached.statement.isClosed()) {
+			cached = new CachedStatement(connection.prepareStatement(sql));
+			statements.put(sql, cached);
+		} else {
+			// the statement may not have been closed by the previous user
+			cached.reset();
+		}
+		cached.owner = owner;
+		return cached.proxy;
+	}
+
+	/**
+	 * The method gets the number of the cached statements.
+	 * 
+	 * @return number of statements
+	 */
+
+	int size() {
+		return statements.size();
+	}
+
+	/**
+	 * CachedStatement holds the physical statement, the proxy given to the
+	 * users and the settings of the statement when it was prepared.
+	 */
+
+	private static class CachedStatement implements InvocationHandler {
+
+		private final PreparedStatement statement;
+		private final PreparedStatement proxy;
+		private final int fetchSize;
+		private final int maxRows;
+		private final int queryTimeout;
+		private final List<ResultSet> resultSets = new ArrayList<ResultSet>();
+		private Connection owner;
+
+		CachedStatement(PreparedStatement statement) throws SQLException {
+			this.statement = statement;
+			this.proxy = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+					new Class<?>[] { PreparedStatement.class }, this);
+			this.fetchSize = statement.getFetchSize();
+			this.maxRows = statement.getMaxRows();
+			this.queryTimeout = statement.getQueryTimeout();
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (name.equals("close") && method.getParameterCount() == 0) {
+				// the statement stays in the cache
+				reset();
+				return null;
+			}
+			if (name.equals("getConnection") && method.getParameterCount() == 0) {
+				return owner;
+			}
+			if (name.equals("isClosed") && method.getParameterCount() == 0) {
+				return false;
+			}
+			if (name.equals("equals") && method.getParameterCount() == 1) {
+				return proxy == args[0];
+			}
+			if (name.equals("hashCode") && method.getParameterCount() == 0) {
+				return System.identityHashCode(proxy);
+			}
+			try {
+				Object result = method.invoke(statement, args);
+				if (result instanceof ResultSet) {
+					// the driver closes the previous result set on the next execution
+					for (Iterator<ResultSet> iterator = resultSets.iterator(); iterator.hasNext();) {
+						if (iterator.next().isClosed()) {
+							iterator.remove();
+						}
+					}
+					resultSets.add((ResultSet) result);
+				}
+				return result;
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+
+		/**
+		 * The method closes the result sets of the statement and restores the
+		 * state it had when it was prepared, so nothing of one user reaches
+		 * the next one.
+		 *
+		 * @throws SQLException
+		 */
+
+		void reset() throws SQLException {
+			for (ResultSet resultSet : resultSets) {
+				resultSet.close();
+			}
+			resultSets.clear();
+			statement.clearParameters();
+			// the batch of a failed executeBatch() must not leak to the next user
+			statement.clearBatch();
+			statement.setFetchSize(fetchSize);
+			statement.setMaxRows(maxRows);
+			statement.setQueryTimeout(queryTimeout);
+		}
+
+		void closeStatement() {
+			try {
+				statement.close();
+			} catch (SQLException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,18 @@
+/**
+ * The enum class that defines how the pool opens its first connections.
+ * 
+ * @author Alexandra Shapira
+ */
+
+package connection;
+
+public enum WarmupMode {
+
+	/** The constructor opens minConnections one by one. */
+	SERIAL,
+	/** minConnections are opened at the same time in the background. */
+	PARALLEL,
+	/** Nothing is opened before the first connection is asked. */
+	LAZY;
+
+}
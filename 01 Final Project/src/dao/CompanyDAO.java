@@ -8,7 +8,9 @@ package dao;
 import java.util.List;
 import java.util.Set;
 
+import dbdao.FetchPlan;
 import dbdao.ParameterType;
+import dbdao.RemovalListener;
 import exceptions.NotFoundException;
 import exceptions.DAOException;
 import exceptions.FailedToException;
@@ -22,12 +24,19 @@ public interface CompanyDAO {
 
 	void removeCompany(Company company) throws NotFoundException, FailedToException;
 
+	void removeCompany(Company company, RemovalListener listener) throws NotFoundException, FailedToException;
+
 	void updateCompany(Company company) throws NotFoundException, FailedToException;
 
 	Company getCompanyByParameter(ParameterType parameter, String value) throws NotFoundException, FailedToException;
 
+	Company getCompanyByParameter(ParameterType parameter, String value, FetchPlan fetchPlan)
+			throws NotFoundException, FailedToException;
+
 	List<Company> getAllCompanies() throws DAOException;
 
+	Page<Company> getAllCompanies(int pageSize, String pageToken) throws DAOException;
+
 	Set<Coupon> getCoupons(String id) throws NotFoundException, FailedToGetListOfCouponsException;
 
 	boolean login(String compName, String password);
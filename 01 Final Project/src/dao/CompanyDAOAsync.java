@@ -0,0 +1,42 @@
+/**
+ * This interface proclaims the asynchronous counterparts of the CompanyDAO
+ * methods that should be used in CompanyDBDAOAsync class. The futures fail with
+ * CompletionException that holds the exception of the CompanyDAO method.
+ * @author Alexandra Shapira
+ */
+
+package dao;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import dbdao.FetchPlan;
+import dbdao.ParameterType;
+import dbdao.RemovalListener;
+import javaBeans.Company;
+import javaBeans.Coupon;
+
+public interface CompanyDAOAsync {
+
+	CompletableFuture<Void> createCompany(Company company);
+
+	CompletableFuture<Void> removeCompany(Company company);
+
+	CompletableFuture<Void> removeCompany(Company company, RemovalListener listener);
+
+	CompletableFuture<Void> updateCompany(Company company);
+
+	CompletableFuture<Company> getCompanyByParameter(ParameterType parameter, String value);
+
+	CompletableFuture<Company> getCompanyByParameter(ParameterType parameter, String value, FetchPlan fetchPlan);
+
+	CompletableFuture<List<Company>> getAllCompanies();
+
+	CompletableFuture<Page<Company>> getAllCompanies(int pageSize, String pageToken);
+
+	CompletableFuture<Set<Coupon>> getCoupons(String id);
+
+	CompletableFuture<Boolean> login(String compName, String password);
+
+}
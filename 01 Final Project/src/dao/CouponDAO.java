@@ -6,20 +6,27 @@
 package dao;
 
 import java.sql.Date;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
+import dbdao.PurchaseOutcome;
 import exceptions.DAOException;
 import exceptions.FailedToException;
 import exceptions.FailedToGetListOfCouponsException;
 import exceptions.NotFoundException;
 import facades.ClientType;
 import javaBeans.Coupon;
+import javaBeans.CouponSearch;
 import javaBeans.CouponType;
 
 public interface CouponDAO {
 
 	void createCoupon(Coupon coupon) throws FailedToException;
 
+	void createCoupons(Collection<Coupon> coupons, String compId) throws FailedToException;
+
 	void removeCoupon(Coupon coupon) throws NotFoundException, FailedToException;
 
 	void updateCoupon(Coupon coupon) throws NotFoundException, FailedToException;
@@ -28,11 +35,23 @@ public interface CouponDAO {
 
 	Set<Coupon> getAllCoupons() throws FailedToGetListOfCouponsException;
 
+	Page<Coupon> getCoupons(ClientType clientType, String clientId, int pageSize, String pageToken) throws FailedToGetListOfCouponsException;
+
 	Set<Coupon> getCouponByType(CouponType type, ClientType clientType, String clientId) throws FailedToGetListOfCouponsException;
 
 	Set<Coupon> getCouponByPrice(double price, ClientType clientType, String clientId) throws FailedToGetListOfCouponsException;
 	
 	Set<Coupon> getCouponByDate (Date date, String compName) throws FailedToGetListOfCouponsException;
+
+	List<Coupon> searchCoupons(CouponSearch search, ClientType clientType, String clientId) throws FailedToGetListOfCouponsException;
+
+	Stream<Coupon> streamAllCoupons() throws FailedToGetListOfCouponsException;
+
+	Stream<Coupon> streamCouponByType(CouponType type, ClientType clientType, String clientId) throws FailedToGetListOfCouponsException;
+
+	Stream<Coupon> streamCouponByPrice(double price, ClientType clientType, String clientId) throws FailedToGetListOfCouponsException;
+
+	Stream<Coupon> streamCouponByDate(Date date, String compId) throws FailedToGetListOfCouponsException;
 	
 	void joinCouponCompany(Coupon coupon, String id) throws FailedToException;
 	
@@ -44,6 +63,8 @@ public interface CouponDAO {
 	
 	public boolean allowedToPurchase (Coupon coupon, String custId) throws FailedToException;
 	
+	PurchaseOutcome purchase (String couponId, String custId) throws FailedToException;
+	
 	public void deleteExpiredCoupons (Date date) throws DAOException;
 	
 }
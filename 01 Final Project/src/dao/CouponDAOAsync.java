@@ -0,0 +1,62 @@
+/**
+ * This interface proclaims the asynchronous counterparts of the CouponDAO
+ * methods that should be used in CouponDBDAOAsync class. The futures fail with
+ * CompletionException that holds the exception of the CouponDAO method. There
+ * are no stream methods, a stream holds its connection until it is closed and
+ * should be read by the caller thread.
+ * @author Alexandra Shapira
+ */
+
+package dao;
+
+import java.sql.Date;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import dbdao.PurchaseOutcome;
+import facades.ClientType;
+import javaBeans.Coupon;
+import javaBeans.CouponSearch;
+import javaBeans.CouponType;
+
+public interface CouponDAOAsync {
+
+	CompletableFuture<Void> createCoupon(Coupon coupon);
+
+	CompletableFuture<Void> createCoupons(Collection<Coupon> coupons, String compId);
+
+	CompletableFuture<Void> removeCoupon(Coupon coupon);
+
+	CompletableFuture<Void> updateCoupon(Coupon coupon);
+
+	CompletableFuture<Coupon> getCoupon(String id);
+
+	CompletableFuture<Set<Coupon>> getAllCoupons();
+
+	CompletableFuture<Page<Coupon>> getCoupons(ClientType clientType, String clientId, int pageSize, String pageToken);
+
+	CompletableFuture<Set<Coupon>> getCouponByType(CouponType type, ClientType clientType, String clientId);
+
+	CompletableFuture<Set<Coupon>> getCouponByPrice(double price, ClientType clientType, String clientId);
+
+	CompletableFuture<Set<Coupon>> getCouponByDate(Date date, String compName);
+
+	CompletableFuture<List<Coupon>> searchCoupons(CouponSearch search, ClientType clientType, String clientId);
+
+	CompletableFuture<Void> joinCouponCompany(Coupon coupon, String id);
+
+	CompletableFuture<Void> joinCouponCustomer(Coupon coupon, String custId);
+
+	CompletableFuture<Boolean> releasedByCompany(Coupon coupon, String id);
+
+	CompletableFuture<Boolean> enoughCouponsToPurchase(Coupon coupon);
+
+	CompletableFuture<Boolean> allowedToPurchase(Coupon coupon, String custId);
+
+	CompletableFuture<PurchaseOutcome> purchase(String couponId, String custId);
+
+	CompletableFuture<Void> deleteExpiredCoupons(Date date);
+
+}
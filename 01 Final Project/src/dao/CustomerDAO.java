@@ -8,7 +8,9 @@ package dao;
 import java.util.List;
 import java.util.Set;
 
+import dbdao.FetchPlan;
 import dbdao.ParameterType;
+import dbdao.RemovalListener;
 import exceptions.DAOException;
 import exceptions.FailedToException;
 import exceptions.FailedToGetListOfCouponsException;
@@ -22,12 +24,19 @@ public interface CustomerDAO {
 
 	void removeCustomer(Customer customer) throws NotFoundException, FailedToException;
 
+	void removeCustomer(Customer customer, RemovalListener listener) throws NotFoundException, FailedToException;
+
 	void updateCustomer(Customer customer) throws NotFoundException, FailedToException;
 
 	Customer getCustomerByParameter(ParameterType parameter, String value) throws NotFoundException, FailedToException;
 
+	Customer getCustomerByParameter(ParameterType parameter, String value, FetchPlan fetchPlan)
+			throws NotFoundException, FailedToException;
+
 	List<Customer> getAllCustomers() throws DAOException;
 
+	Page<Customer> getAllCustomers(int pageSize, String pageToken) throws DAOException;
+
 	Set<Coupon> getCoupons(String id) throws FailedToGetListOfCouponsException;
 
 	boolean login(String custName, String password);
@@ -0,0 +1,42 @@
+/**
+ * This interface proclaims the asynchronous counterparts of the CustomerDAO
+ * methods that should be used in CustomerDBDAOAsync class. The futures fail with
+ * CompletionException that holds the exception of the CustomerDAO method.
+ * @author Alexandra Shapira
+ */
+
+package dao;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import dbdao.FetchPlan;
+import dbdao.ParameterType;
+import dbdao.RemovalListener;
+import javaBeans.Coupon;
+import javaBeans.Customer;
+
+public interface CustomerDAOAsync {
+
+	CompletableFuture<Void> createCustomer(Customer customer);
+
+	CompletableFuture<Void> removeCustomer(Customer customer);
+
+	CompletableFuture<Void> removeCustomer(Customer customer, RemovalListener listener);
+
+	CompletableFuture<Void> updateCustomer(Customer customer);
+
+	CompletableFuture<Customer> getCustomerByParameter(ParameterType parameter, String value);
+
+	CompletableFuture<Customer> getCustomerByParameter(ParameterType parameter, String value, FetchPlan fetchPlan);
+
+	CompletableFuture<List<Customer>> getAllCustomers();
+
+	CompletableFuture<Page<Customer>> getAllCustomers(int pageSize, String pageToken);
+
+	CompletableFuture<Set<Coupon>> getCoupons(String id);
+
+	CompletableFuture<Boolean> login(String custName, String password);
+
+}
@@ -0,0 +1,69 @@
+/**
+ * This class keeps one page of a listing and the token of the next page. The
+ * token is opaque, the caller only passes it back to get the next page.
+ * @author Alexandra Shapira
+ */
+
+package dao;
+
+import java.util.List;
+
+public class Page<T> {
+
+	private final List<T> items;
+	private final String nextPageToken;
+
+	/**
+	 * Class constructor.
+	 * 
+	 * @param items
+	 *            The records of the page
+	 * @param nextPageToken
+	 *            The token of the next page or null if this page is the last
+	 */
+
+	public Page(List<T> items, String nextPageToken) {
+		this.items = items;
+		this.nextPageToken = nextPageToken;
+	}
+
+	/**
+	 * The method gets the records of the page.
+	 * 
+	 * @return List of records
+	 */
+
+	public List<T> getItems() {
+		return items;
+	}
+
+	/**
+	 * The method gets the token that should be passed to get the next page.
+	 * 
+	 * @return the token or null if this page is the last
+	 */
+
+	public String getNextPageToken() {
+		return nextPageToken;
+	}
+
+	/**
+	 * The method checks if there is a page after this one.
+	 * 
+	 * @return true if there is the next page
+	 */
+
+	public boolean hasNextPage() {
+		return nextPageToken != null;
+	}
+
+	/**
+	 * The method returns a string with the records of the page
+	 */
+
+	@Override
+	public String toString() {
+		return "Page: " + items + "\n" + "Has Next Page: " + hasNextPage();
+	}
+
+}
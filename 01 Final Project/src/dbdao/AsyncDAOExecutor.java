@@ -0,0 +1,99 @@
+/**
+ * AsyncDAOExecutor runs the calls of the asynchronous DAO classes. It has as
+ * many threads as the connection pools have connections, so the asynchronous
+ * calls never wait for a connection more than the blocking ones, and a bounded
+ * queue, so a burst of calls fails fast instead of piling up in the memory.
+ * @author Alexandra Shapira
+ */
+
+package dbdao;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import connection.ConnectionPoolSingleton;
+
+public final class AsyncDAOExecutor {
+
+	private static volatile boolean started;
+
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * The inner class AsyncDAOExecutorHolder creates the executor on the first
+	 * asynchronous call only.
+	 *
+	 */
+
+	private static class AsyncDAOExecutorHolder {
+		private static final AsyncDAOExecutor INSTANCE = new AsyncDAOExecutor();
+	}
+
+	static AsyncDAOExecutor getInstance() {
+		return AsyncDAOExecutorHolder.INSTANCE;
+	}
+
+	/**
+	 * Class constructor.
+	 */
+
+	private AsyncDAOExecutor() {
+		int threads = Math.max(1, ConnectionPoolSingleton.getInstance().getMaxConnections());
+		AtomicInteger threadNumber = new AtomicInteger();
+		executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(DBDAOConfig.getAsyncQueueSize()), runnable -> {
+					Thread thread = new Thread(runnable, "async-dao-" + threadNumber.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		executor.allowCoreThreadTimeOut(true);
+		started = true;
+	}
+
+	/**
+	 * The method runs the DAO call on the executor.
+	 *
+	 * @param call
+	 *            The blocking DAO call
+	 * @return CompletableFuture of the result, it fails with
+	 *         CompletionException that holds the exception of the call or with
+	 *         RejectedExecutionException if the queue is full
+	 */
+
+	<T> CompletableFuture<T> supply(Callable<T> call) {
+		try {
+			return CompletableFuture.supplyAsync(() -> {
+				try {
+					return call.call();
+				} catch (RuntimeException e) {
+					throw e;
+				} catch (Exception e) {
+					throw new CompletionException(e);
+				}
+			}, executor);
+		} catch (RejectedExecutionException e) {
+			CompletableFuture<T> rejected = new CompletableFuture<T>();
+			rejected.completeExceptionally(e);
+			return rejected;
+		}
+	}
+
+	/**
+	 * The method stops the executor if it was started. The calls that are
+	 * already queued are finished.
+	 */
+
+	public static void shutdown() {
+		// does not create the executor only to stop it
+		if (started) {
+			getInstance().executor.shutdown();
+		}
+	}
+
+}
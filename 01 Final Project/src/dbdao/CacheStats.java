@@ -0,0 +1,66 @@
+/**
+ * CacheStats is the snapshot of the counters of the DBDAO cache.
+ * @author Alexandra Shapira
+ */
+
+package dbdao;
+
+public final class CacheStats {
+
+	private final long hits;
+	private final long misses;
+	private final int size;
+
+	CacheStats(long hits, long misses, int size) {
+		this.hits = hits;
+		this.misses = misses;
+		this.size = size;
+	}
+
+	/**
+	 * The method gets the number of reads that were served by the cache.
+	 * 
+	 * @return number of hits
+	 */
+
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * The method gets the number of reads that went to the database.
+	 * 
+	 * @return number of misses
+	 */
+
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * The method gets the number of entries in the cache.
+	 * 
+	 * @return size
+	 */
+
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * The method gets the share of the reads that were served by the cache.
+	 * 
+	 * @return hit rate from 0 to 1
+	 */
+
+	public double getHitRate() {
+		long requests = hits + misses;
+		return requests == 0 ? 0 : (double) hits / requests;
+	}
+
+	@Override
+	public String toString() {
+		return "Hits: " + hits + ", misses: " + misses + ", size: " + size;
+	}
+
+}
@@ -0,0 +1,154 @@
+/**
+ * CascadeRemover deactivates Company or Customer together with their coupons
+ * and purchases in chunks of removalChunkSize rows from db.properties. Every
+ * chunk is committed separately, so the removal of a large Company never locks
+ * the coupon tables for long and the purchases go on between the chunks.
+ * The IS_ACTIVE flags are the checkpoint of the removal: the chunks select the
+ * rows that are still active only, so a removal that failed in the middle is
+ * resumed by calling it again.
+ * @author Alexandra Shapira
+ */
+
+package dbdao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import connection.ConnectionPoolSingleton;
+
+final class CascadeRemover {
+
+	private final ConnectionPoolSingleton pool;
+	private final RemovalListener listener;
+	private final int chunkSize;
+
+	/**
+	 * Class constructor.
+	 * 
+	 * @param pool
+	 *            The pool of connections
+	 * @param listener
+	 *            The listener of the progress
+	 */
+
+	CascadeRemover(ConnectionPoolSingleton pool, RemovalListener listener) {
+		this.pool = pool;
+		this.listener = listener;
+		this.chunkSize = DBDAOConfig.getRemovalChunkSize();
+	}
+
+	/**
+	 * The method deactivates the Company first, so it can't log in any more,
+	 * and then its coupons chunk by chunk. In every chunk the coupons are
+	 * deactivated before their purchases, so they can't be bought while the
+	 * purchases are deactivated, and the company_coupon rows are deactivated
+	 * last as the mark that the chunk is done.
+	 * 
+	 * @param compId
+	 *            The ID of the Company
+	 * @return false if there is no such Company
+	 * @throws SQLException
+	 */
+
+	boolean removeCompany(String compId) throws SQLException {
+		String nextCoupons = Queries.NEXT_COMPANY_COUPONS;
+		try (Connection connection = pool.getConnection()) {
+			if (deactivate(connection, "company", compId) == 0) {
+				return false;
+			}
+			List<String> couponIds;
+			while (!(couponIds = nextIds(connection, nextCoupons, compId)).isEmpty()) {
+				PreparedStatement preparedStatement = connection
+						.prepareStatement(Queries.deactivateCoupons(couponIds.size()));
+				bind(preparedStatement, 1, couponIds);
+				listener.chunkRemoved("coupon", preparedStatement.executeUpdate());
+				CouponDBDAO.invalidateCachedCoupons(couponIds);
+
+				String purchases = Queries.deactivatePurchasesOfCoupons(couponIds.size());
+				int rows;
+				do {
+					PreparedStatement preparedStatement01 = connection.prepareStatement(purchases);
+					preparedStatement01.setInt(bind(preparedStatement01, 1, couponIds), chunkSize);
+					rows = preparedStatement01.executeUpdate();
+					if (rows > 0) {
+						listener.chunkRemoved("customer_coupon", rows);
+					}
+				} while (rows == chunkSize);
+
+				PreparedStatement preparedStatement02 = connection
+						.prepareStatement(Queries.deactivateCompanyCoupons(couponIds.size()));
+				preparedStatement02.setString(1, compId);
+				bind(preparedStatement02, 2, couponIds);
+				listener.chunkRemoved("company_coupon", preparedStatement02.executeUpdate());
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The method deactivates the Customer first and then its purchases chunk
+	 * by chunk.
+	 * 
+	 * @param custId
+	 *            The ID of the Customer
+	 * @return false if there is no such Customer
+	 * @throws SQLException
+	 */
+
+	boolean removeCustomer(String custId) throws SQLException {
+		String purchases = Queries.DEACTIVATE_CUSTOMER_PURCHASES;
+		try (Connection connection = pool.getConnection()) {
+			if (deactivate(connection, "customer", custId) == 0) {
+				return false;
+			}
+			int rows;
+			do {
+				PreparedStatement preparedStatement = connection.prepareStatement(purchases);
+				preparedStatement.setString(1, custId);
+				preparedStatement.setInt(2, chunkSize);
+				rows = preparedStatement.executeUpdate();
+				if (rows > 0) {
+					listener.chunkRemoved("customer_coupon", rows);
+				}
+			} while (rows == chunkSize);
+		}
+		return true;
+	}
+
+	private int deactivate(Connection connection, String table, String id) throws SQLException {
+		PreparedStatement preparedStatement = connection
+				.prepareStatement(Queries.deactivate(table));
+		preparedStatement.setString(1, id);
+		int rows = preparedStatement.executeUpdate();
+		if (rows > 0) {
+			listener.chunkRemoved(table, rows);
+		}
+		return rows;
+	}
+
+	private List<String> nextIds(Connection connection, String query, String ownerId) throws SQLException {
+		List<String> ids = new ArrayList<String>();
+		PreparedStatement preparedStatement = connection.prepareStatement(query);
+		preparedStatement.setString(1, ownerId);
+		preparedStatement.setInt(2, chunkSize);
+		try (ResultSet resultSet = preparedStatement.executeQuery()) {
+			while (resultSet.next()) {
+				ids.add(resultSet.getString(1));
+			}
+		}
+		return ids;
+	}
+
+	private static int bind(PreparedStatement preparedStatement, int index, List<String> values)
+			throws SQLException {
+		for (String value : values) {
+			preparedStatement.setString(index++, value);
+		}
+		return index;
+	}
+
+}
@@ -6,12 +6,15 @@
 package dbdao;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.sql.*;
 import connection.ConnectionPoolSingleton;
 import dao.CompanyDAO;
+import dao.Page;
 import exceptions.ActionType;
 import exceptions.DBDAOException;
 import exceptions.EntryType;
@@ -20,12 +23,18 @@ import exceptions.FailedToGetListOfCouponsException;
 import exceptions.NotFoundException;
 import javaBeans.Company;
 import javaBeans.Coupon;
-import javaBeans.CouponType;
+import javaBeans.LazyCouponSet;
 
 public class CompanyDBDAO implements CompanyDAO {
 
 	private static ConnectionPoolSingleton pool = ConnectionPoolSingleton.getInstance();
 
+	/** The cache of getCompanyByParameter and login shared by all the CompanyDBDAO objects, null if it is off. */
+	private static final IdentityCache<Company> COMPANY_CACHE = DBDAOConfig.isIdentityCacheEnabled()
+			? new IdentityCache<Company>(DBDAOConfig.getIdentityCacheSize(), DBDAOConfig.getIdentityCacheTtlMillis(),
+					Company::getId, Company::getCompName)
+			: null;
+
 	/**
 	 * The method converts a Company object into a database record. The
 	 * uniqueness of the companyName is checking on the database level.
@@ -40,8 +49,7 @@ public class CompanyDBDAO implements CompanyDAO {
 		String query = "INSERT INTO company "
 				+ "(ID, COMP_NAME, PASSWORD, EMAIL) "
 				+ "VALUES (?, ?, ?, ?)";
-		Connection connection = pool.getConnection();
-		try {
+		try (Connection connection = pool.getConnection()) {
 			PreparedStatement preparedStatement = connection.prepareStatement(query);
 			preparedStatement.setString(1, company.getId());
 			preparedStatement.setString(2, company.getCompName());
@@ -52,42 +60,60 @@ public class CompanyDBDAO implements CompanyDAO {
 			e.printStackTrace();
 			throw new FailedToException(EntryType.COMPANY, ActionType.CREATE, company.getId(), e);
 		} finally {
-			pool.returnConnection(connection);
+			invalidateCached(company.getId());
 		}
 	}
 
 	/**
 	 * The method updates Company's data in the database according to changes
-	 * that were made in the Company object.
+	 * that were made in the Company object. Only the changed fields are
+	 * written (see Company.getChangedFields), nothing is done if there are
+	 * none. The record is updated only if it still has the version of the
+	 * Company object, after the update the object gets the new version.
 	 * 
 	 * @param company
 	 *            The Company object
 	 * @throws NotFoundException
+	 * @throws StaleVersionException
+	 *             if the record was updated after the Company was read
 	 * @throws FailedToException
 	 */
 
 	@Override
 	public void updateCompany(Company company) throws NotFoundException, FailedToException {
-		String query = "UPDATE company "
-				+ "SET COMP_NAME = ?, PASSWORD = ?, EMAIL = ?, IS_ACTIVE = ? "
-				+ "WHERE ID = ?";
-		Connection connection = pool.getConnection();
-		try {
-			PreparedStatement preparedStatement = connection.prepareStatement(query);
-			preparedStatement.setString(1, company.getCompName());
-			preparedStatement.setString(2, company.getPassword());
-			preparedStatement.setString(3, company.getEmail());
-			preparedStatement.setBoolean(4, company.isActive());
-			preparedStatement.setString(5, company.getId());
-			preparedStatement.executeUpdate();
-			if (preparedStatement.getUpdateCount() == 0) {
-				throw new NotFoundException(exceptions.EntryType.COMPANY, company.getId());
+		PartialUpdate update = new PartialUpdate("company");
+		for (Company.Field field : company.getChangedFields()) {
+			switch (field) {
+			case COMP_NAME:
+				update.set("COMP_NAME", company.getCompName());
+				break;
+			case PASSWORD:
+				update.set("PASSWORD", company.getPassword());
+				break;
+			case EMAIL:
+				update.set("EMAIL", company.getEmail());
+				break;
+			case ACTIVE:
+				update.set("IS_ACTIVE", company.isActive());
+				break;
+			}
+		}
+		if (update.isEmpty()) {
+			return;
+		}
+		try (Connection connection = pool.getConnection()) {
+			if (update.execute(connection, company.getId(), company.getVersion()) == 0) {
+				OptimisticLock.conflict(connection, EntryType.COMPANY, company.getId(), company.getVersion());
 			}
+			if (company.getVersion() != Company.ANY_VERSION) {
+				company.setVersion(company.getVersion() + 1);
+			}
+			company.clearChangedFields();
 		} catch (SQLException e) {
 			e.printStackTrace();
 			throw new FailedToException(EntryType.COMPANY, ActionType.UPDATE, company.getId(), e);
 		} finally {
-			pool.returnConnection(connection);
+			invalidateCached(company.getId());
 		}
 	}
 
@@ -106,56 +132,57 @@ public class CompanyDBDAO implements CompanyDAO {
 
 	@Override
 	public void removeCompany(Company company) throws NotFoundException, FailedToException {
-		String query = "UPDATE company cm "
-				+ "INNER JOIN company_coupon cc on cm.ID = cc.COMP_ID "
-				+ "INNER JOIN coupon cp ON cp.ID = cc.COUPON_ID "
-				+ "INNER JOIN customer_coupon ccp on ccp.COUPON_ID = cp.ID "
-				+ "SET cc.IS_ACTIVE = false, "
-					+ "cm.IS_ACTIVE = false, "
-					+ "cp.IS_ACTIVE = false, "
-					+ "ccp.IS_ACTIVE = false "
-				+ "WHERE cm.ID = ?";
-		Connection connection = pool.getConnection();
+		removeCompany(company, RemovalListener.NONE);
+	}
+
+	/**
+	 * The method deactivates the Company like removeCompany(Company) in
+	 * chunks of removalChunkSize rows, each in its own transaction (see
+	 * CascadeRemover). If the method fails, calling it again continues the
+	 * removal.
+	 * 
+	 * @param company
+	 *            The Company that should be removed
+	 * @param listener
+	 *            The listener of the progress
+	 * 
+	 * @throws NotFoundException
+	 * @throws FailedToException
+	 */
+
+	@Override
+	public void removeCompany(Company company, RemovalListener listener) throws NotFoundException, FailedToException {
 		try {
-			PreparedStatement preparedStatement = connection.prepareStatement(query);
-			preparedStatement.setString(1, company.getId());
-			preparedStatement.executeUpdate();
-			if (preparedStatement.getUpdateCount() == 0) {
+			if (!new CascadeRemover(pool, listener).removeCompany(company.getId())) {
 				throw new NotFoundException(EntryType.COMPANY, company.getId());
 			}
 		} catch (SQLException e) {
 			e.printStackTrace();
 			throw new FailedToException(EntryType.COMPANY, ActionType.REMOVE, company.getId(), e);
 		} finally {
-			pool.returnConnection(connection);
+			invalidateCached(company.getId());
 		}
 
 	}
 
 	/**
-	 * This is the auxiliary method that helps to avoid code duplication. The
-	 * method creates the Company object from the ResultSet received from the
-	 * database. Before using the method you should check if the resultset is
-	 * not null.
+	 * The method gets the Company object from the database record by Company
+	 * ID or Company Name. The coupons of the Company are read on the first
+	 * access to its set of coupons.
 	 * 
-	 * @param rs
-	 *            ResultSet received from the database that includes one Company
-	 *            record
-	 * @return Company Company object
-	 * @throws SQLException
-	 * @throws DBDAOException 
+	 * @param parameter
+	 *            Enum type of parameter (ID or COMPNAME)
+	 * @param value
+	 *            The value of the parameter
+	 * 
+	 * @throws NotFoundException
+	 * @throws FailedToException
 	 */
 
-	private Company parseDBCompany(ResultSet rs) throws SQLException, DBDAOException {
-		Company company = new Company();
-		String id = rs.getString("ID");
-		String compName = rs.getString("COMP_NAME");
-		String password = rs.getString("PASSWORD");
-		String email = rs.getString("EMAIL");
-		Set<Coupon> couponsOfCompany = getCoupons(id);
-		boolean isActive = rs.getBoolean("IS_ACTIVE");
-		company = new Company(id, compName, password, email, couponsOfCompany, isActive);
-		return company;
+	@Override
+	public Company getCompanyByParameter(ParameterType parameter, String value)
+			throws NotFoundException, FailedToException {
+		return getCompanyByParameter(parameter, value, FetchPlan.LAZY);
 	}
 
 	/**
@@ -166,39 +193,102 @@ public class CompanyDBDAO implements CompanyDAO {
 	 *            Enum type of parameter (ID or COMPNAME)
 	 * @param value
 	 *            The value of the parameter
+	 * @param fetchPlan
+	 *            EAGER to read the coupons of the Company on the same
+	 *            connection, LAZY to read them on the first access
 	 * 
 	 * @throws NotFoundException
 	 * @throws FailedToException
 	 */
 
 	@Override
-	public Company getCompanyByParameter(ParameterType parameter, String value)
+	public Company getCompanyByParameter(ParameterType parameter, String value, FetchPlan fetchPlan)
 			throws NotFoundException, FailedToException {
-		String query = "SELECT * FROM company WHERE " + parameter + "= ?";
-		Connection connection = pool.getConnection();
+		if (COMPANY_CACHE == null) {
+			return readCompany(parameter, value, fetchPlan);
+		}
+		Company cached = parameter == ParameterType.ID ? COMPANY_CACHE.getById(value) : COMPANY_CACHE.getByName(value);
+		if (cached == null) {
+			long generation = COMPANY_CACHE.getGeneration();
+			Company company = readCompany(parameter, value, fetchPlan);
+			COMPANY_CACHE.put(copy(company, null), generation);
+			return company;
+		}
+		if (fetchPlan == FetchPlan.LAZY) {
+			return copy(cached, new LazyCouponSet(() -> getCoupons(cached.getId())));
+		}
+		try (Connection connection = pool.getConnection()) {
+			return copy(cached, getCoupons(connection, cached.getId()));
+		} catch (SQLException e) {
+			e.printStackTrace();
+			throw new FailedToException(EntryType.COMPANY, ActionType.GET, parameter, value, e);
+		}
+	}
+
+	private Company readCompany(ParameterType parameter, String value, FetchPlan fetchPlan)
+			throws NotFoundException, FailedToException {
+		String query = Queries.companyByParameter(parameter);
 		Company company = new Company();
-		try {
+		try (Connection connection = pool.getConnection()) {
 			PreparedStatement preparedStatement = connection.prepareStatement(query);
 			preparedStatement.setString(1, value);
 			ResultSet rs = preparedStatement.executeQuery();
 			if (!rs.next()) {
 				throw new NotFoundException(EntryType.COMPANY, value);
 			}
-			company = parseDBCompany(rs);
+			CompanyRowMapper mapper = CompanyRowMapper.of(rs);
+			String id = mapper.id(rs);
+			if (fetchPlan == FetchPlan.EAGER) {
+				company = mapper.mapRow(rs, getCoupons(connection, id));
+			} else {
+				company = mapper.mapRow(rs, new LazyCouponSet(() -> getCoupons(id)));
+			}
 
-		} catch (SQLException | DBDAOException e) {
+		} catch (SQLException e) {
 			e.printStackTrace();
 			throw new FailedToException(EntryType.COMPANY, ActionType.GET, parameter, value, e);
-		} finally {
-			pool.returnConnection(connection);
 		}
 
 		return company;
 
 	}
 
+	private static Company copy(Company company, Set<Coupon> coupons) {
+		Company copy = new Company(company.getId(), company.getCompName(), company.getPassword(),
+				company.getEmail(), coupons, company.isActive());
+		copy.setVersion(company.getVersion());
+		copy.clearChangedFields();
+		return copy;
+	}
+
+	/**
+	 * The method removes the Company from the identity cache.
+	 * 
+	 * @param id
+	 *            The Company's id
+	 */
+
+	static void invalidateCached(String id) {
+		if (COMPANY_CACHE != null) {
+			COMPANY_CACHE.invalidate(id);
+		}
+	}
+
+	/**
+	 * The method gets the hits and the misses of the identity cache of the
+	 * lookups by ID and by name.
+	 * 
+	 * @return CacheStats or null if identityCache is off
+	 */
+
+	public static CacheStats getCompanyCacheStats() {
+		return COMPANY_CACHE == null ? null : COMPANY_CACHE.getStats();
+	}
+
 	/**
-	 * The method gets the list of all active companies from the database.
+	 * The method gets the list of all active companies from the database. The
+	 * companies and the coupons of all of them are read by two queries on the
+	 * same connection instead of a query per company.
 	 * 
 	 * @return ArrayList of Companies.
 	 * @throws DBDAOException 
@@ -206,26 +296,109 @@ public class CompanyDBDAO implements CompanyDAO {
 
 	@Override
 	public List<Company> getAllCompanies() throws DBDAOException {
-		String query = "SELECT * FROM company WHERE IS_ACTIVE = TRUE";
-		Connection connection = pool.getConnection();
+		String query = Queries.ALL_COMPANIES;
+		String couponsQuery = Queries.ALL_COMPANIES_COUPONS;
 		Company company = null;
 		List<Company> activeCompanies = new ArrayList<Company>();
-		try {
+		Map<String, Set<Coupon>> couponsByCompany = new HashMap<String, Set<Coupon>>();
+		try (Connection connection = pool.getReadConnection()) {
 			PreparedStatement preparedStatement = connection.prepareStatement(query);
 			ResultSet rs = preparedStatement.executeQuery();
+			CompanyRowMapper mapper = CompanyRowMapper.of(rs);
 			while (rs.next()) {
-				company = parseDBCompany(rs);
+				Set<Coupon> couponsOfCompany = new HashSet<Coupon>();
+				company = mapper.mapRow(rs, couponsOfCompany);
+				couponsByCompany.put(company.getId(), couponsOfCompany);
 				activeCompanies.add(company);
 			}
+			PreparedStatement preparedStatement01 = connection.prepareStatement(couponsQuery);
+			ResultSet rs01 = preparedStatement01.executeQuery();
+			addCoupons(rs01, couponsByCompany);
 		} catch (SQLException e) {
 			e.printStackTrace();
 			throw new DBDAOException ("Failed to get list of companies", e);
-		} finally {
-			pool.returnConnection(connection);
 		}
 		return activeCompanies;
 	}
 
+	/**
+	 * The method gets one page of the active companies ordered by ID. The page
+	 * is read by the condition on the ID of the last company of the previous
+	 * page and LIMIT, so it costs the same for any page. The coupons of the
+	 * companies of the page are read by one more query.
+	 * 
+	 * @param pageSize
+	 *            The number of companies in the page
+	 * @param pageToken
+	 *            The token of the previous page or null for the first page
+	 * @return Page of Companies
+	 * @throws DBDAOException 
+	 */
+
+	@Override
+	public Page<Company> getAllCompanies(int pageSize, String pageToken) throws DBDAOException {
+		PageToken.checkPageSize(pageSize);
+		String query = Queries.companiesPage(pageToken != null);
+		List<Company> activeCompanies = new ArrayList<Company>();
+		Map<String, Set<Coupon>> couponsByCompany = new HashMap<String, Set<Coupon>>();
+		try (Connection connection = pool.getReadConnection()) {
+			PreparedStatement preparedStatement = connection.prepareStatement(query);
+			int index = 1;
+			if (pageToken != null) {
+				preparedStatement.setString(index++, PageToken.decode(pageToken, 1)[0]);
+			}
+			preparedStatement.setInt(index, pageSize + 1);
+			ResultSet rs = preparedStatement.executeQuery();
+			CompanyRowMapper mapper = CompanyRowMapper.of(rs);
+			while (rs.next()) {
+				Set<Coupon> couponsOfCompany = new HashSet<Coupon>();
+				Company company = mapper.mapRow(rs, couponsOfCompany);
+				couponsByCompany.put(company.getId(), couponsOfCompany);
+				activeCompanies.add(company);
+			}
+			if (activeCompanies.size() > pageSize) {
+				// the extra row only shows that there is the next page
+				couponsByCompany.remove(activeCompanies.get(pageSize).getId());
+			}
+			if (!couponsByCompany.isEmpty()) {
+				String couponsQuery = Queries.companiesCoupons(couponsByCompany.size());
+				PreparedStatement preparedStatement01 = connection.prepareStatement(couponsQuery);
+				index = 1;
+				for (String id : couponsByCompany.keySet()) {
+					preparedStatement01.setString(index++, id);
+				}
+				addCoupons(preparedStatement01.executeQuery(), couponsByCompany);
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+			throw new DBDAOException ("Failed to get list of companies", e);
+		}
+		return PageToken.toPage(activeCompanies, pageSize, company -> new String[] { company.getId() });
+	}
+
+	/**
+	 * The method adds the coupons from the ResultSet to the sets of coupons of
+	 * their companies.
+	 * 
+	 * @param rs
+	 *            ResultSet of coupons with COMP_ID column
+	 * @param couponsByCompany
+	 *            The sets of coupons by Company id
+	 * @throws SQLException
+	 */
+
+	private static void addCoupons(ResultSet rs, Map<String, Set<Coupon>> couponsByCompany) throws SQLException {
+		CouponRowMapper mapper = CouponRowMapper.of(rs);
+		int compId = rs.findColumn("COMP_ID");
+		while (rs.next()) {
+			Set<Coupon> couponsOfCompany = couponsByCompany.get(rs.getString(compId));
+			// the company could be added after the first query
+			if (couponsOfCompany != null) {
+				couponsOfCompany.add(mapper.mapRow(rs));
+			}
+		}
+	}
+
 	/**
 	 * The method gets the set of active coupons released by Company (by Company's id).
 	 * 
@@ -237,36 +410,35 @@ public class CompanyDBDAO implements CompanyDAO {
 
 	@Override
 	public Set<Coupon> getCoupons(String id) throws FailedToGetListOfCouponsException {
-		Set<Coupon> couponsOfCompany = new HashSet<Coupon>();
-		String query = "SELECT * FROM company_coupon "
-						+ "INNER JOIN coupon ON company_coupon.COUPON_ID = coupon.ID "
-						+ "WHERE COMP_ID = ? AND coupon.IS_ACTIVE=true";
-		Connection connection = pool.getConnection();
-		PreparedStatement preparedStatement;
-		try {
-			preparedStatement = connection.prepareStatement(query);
-			preparedStatement.setString(1, id);
-			ResultSet rs = preparedStatement.executeQuery();
-			while (rs.next()) {
-				String couponId = rs.getString("ID");
-				String title = rs.getString("TITLE");
-				Date startDate = rs.getDate("START_DATE");
-				Date endDate = rs.getDate("END_DATE");
-				int amount = rs.getInt("AMOUNT");
-				String type = rs.getString("TYPE");
-				String message = rs.getString("MESSAGE");
-				double price = rs.getDouble("PRICE");
-				String image = rs.getString("IMAGE");
-				boolean isActive = rs.getBoolean("IS_ACTIVE");
-
-				couponsOfCompany.add(new Coupon(couponId, title, startDate, endDate, amount, CouponType.valueOf(type),
-						message, price, image, isActive));
-			}
+		try (Connection connection = pool.getReadConnection()) {
+			return getCoupons(connection, id);
 		} catch (SQLException e) {
 			e.printStackTrace();
 			throw new FailedToGetListOfCouponsException (e);
-		} finally {
-			pool.returnConnection(connection);
+		}
+	}
+
+	/**
+	 * The method gets the set of active coupons released by Company using the
+	 * connection that the caller already holds.
+	 * 
+	 * @param connection
+	 *            The connection borrowed by the caller
+	 * @param id
+	 *            The Company id
+	 * @return Set of Coupons
+	 * @throws SQLException
+	 */
+
+	private Set<Coupon> getCoupons(Connection connection, String id) throws SQLException {
+		Set<Coupon> couponsOfCompany = new HashSet<Coupon>();
+		String query = Queries.COMPANY_COUPONS;
+		PreparedStatement preparedStatement = connection.prepareStatement(query);
+		preparedStatement.setString(1, id);
+		ResultSet rs = preparedStatement.executeQuery();
+		CouponRowMapper mapper = CouponRowMapper.of(rs);
+		while (rs.next()) {
+			couponsOfCompany.add(mapper.mapRow(rs));
 		}
 		return couponsOfCompany;
 	}
@@ -284,9 +456,14 @@ public class CompanyDBDAO implements CompanyDAO {
 
 	@Override
 	public boolean login(String compName, String password) {
-		String query = "SELECT * FROM company WHERE COMP_NAME = ? AND PASSWORD = ?";
-		Connection connection = pool.getConnection();
-		try {
+		if (COMPANY_CACHE != null) {
+			Company cached = COMPANY_CACHE.getByName(compName);
+			if (cached != null && cached.getPassword().equals(password)) {
+				return true;
+			}
+		}
+		String query = Queries.COMPANY_LOGIN;
+		try (Connection connection = pool.getConnection()) {
 			PreparedStatement preparedStatement = connection.prepareStatement(query);
 			preparedStatement.setString(1, compName);
 			preparedStatement.setString(2, password);
@@ -295,8 +472,6 @@ public class CompanyDBDAO implements CompanyDAO {
 		} catch (SQLException e) {
 			e.printStackTrace();
 			return false;
-		} finally {
-			pool.returnConnection(connection);
 		}
 	}
 
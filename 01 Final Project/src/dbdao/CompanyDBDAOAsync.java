@@ -0,0 +1,110 @@
+/**
+ * CompanyDBDAOAsync runs the methods of CompanyDAO on AsyncDAOExecutor, so the
+ * caller can start several independent database calls and wait for all of
+ * them at once.
+ * @author Alexandra Shapira
+ */
+
+package dbdao;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+import dao.CompanyDAO;
+import dao.CompanyDAOAsync;
+import dao.Page;
+import javaBeans.Company;
+import javaBeans.Coupon;
+
+public class CompanyDBDAOAsync implements CompanyDAOAsync {
+
+	private final CompanyDAO companyDAO;
+
+	/**
+	 * Class constructor that wraps a new CompanyDBDAO.
+	 */
+
+	public CompanyDBDAOAsync() {
+		this(new CompanyDBDAO());
+	}
+
+	/**
+	 * Class constructor.
+	 * 
+	 * @param companyDAO
+	 *            The blocking DAO whose methods are run asynchronously
+	 */
+
+	public CompanyDBDAOAsync(CompanyDAO companyDAO) {
+		this.companyDAO = companyDAO;
+	}
+
+	private static <T> CompletableFuture<T> supply(Callable<T> call) {
+		return AsyncDAOExecutor.getInstance().supply(call);
+	}
+
+	@Override
+	public CompletableFuture<Void> createCompany(Company company) {
+		return supply(() -> {
+			companyDAO.createCompany(company);
+			return null;
+		});
+	}
+
+	@Override
+	public CompletableFuture<Void> removeCompany(Company company) {
+		return supply(() -> {
+			companyDAO.removeCompany(company);
+			return null;
+		});
+	}
+
+	@Override
+	public CompletableFuture<Void> removeCompany(Company company, RemovalListener listener) {
+		return supply(() -> {
+			companyDAO.removeCompany(company, listener);
+			return null;
+		});
+	}
+
+	@Override
+	public CompletableFuture<Void> updateCompany(Company company) {
+		return supply(() -> {
+			companyDAO.updateCompany(company);
+			return null;
+		});
+	}
+
+	@Override
+	public CompletableFuture<Company> getCompanyByParameter(ParameterType parameter, String value) {
+		return supply(() -> companyDAO.getCompanyByParameter(parameter, value));
+	}
+
+	@Override
+	public CompletableFuture<Company> getCompanyByParameter(ParameterType parameter, String value, FetchPlan fetchPlan) {
+		return supply(() -> companyDAO.getCompanyByParameter(parameter, value, fetchPlan));
+	}
+
+	@Override
+	public CompletableFuture<List<Company>> getAllCompanies() {
+		return supply(() -> companyDAO.getAllCompanies());
+	}
+
+	@Override
+	public CompletableFuture<Page<Company>> getAllCompanies(int pageSize, String pageToken) {
+		return supply(() -> companyDAO.getAllCompanies(pageSize, pageToken));
+	}
+
+	@Override
+	public CompletableFuture<Set<Coupon>> getCoupons(String id) {
+		return supply(() -> companyDAO.getCoupons(id));
+	}
+
+	@Override
+	public CompletableFuture<Boolean> login(String compName, String password) {
+		return supply(() -> companyDAO.login(compName, password));
+	}
+
+}
@@ -0,0 +1,83 @@
+/**
+ * CompanyRowMapper creates Company objects from the rows of a ResultSet. The
+ * indices of the columns are found once, when the mapper is created for the
+ * ResultSet. The queries should select COLUMNS from the company table.
+ * @author Alexandra Shapira
+ */
+
+package dbdao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Set;
+
+import javaBeans.Company;
+import javaBeans.Coupon;
+
+final class CompanyRowMapper {
+
+	static final String COLUMNS = "ID, COMP_NAME, PASSWORD, EMAIL, IS_ACTIVE, VERSION";
+
+	private final int id;
+	private final int compName;
+	private final int password;
+	private final int email;
+	private final int isActive;
+	private final int version;
+
+	private CompanyRowMapper(ResultSet rs) throws SQLException {
+		id = rs.findColumn("ID");
+		compName = rs.findColumn("COMP_NAME");
+		password = rs.findColumn("PASSWORD");
+		email = rs.findColumn("EMAIL");
+		isActive = rs.findColumn("IS_ACTIVE");
+		version = rs.findColumn("VERSION");
+	}
+
+	/**
+	 * The method creates the mapper for the ResultSet.
+	 * 
+	 * @param rs
+	 *            ResultSet with the company columns
+	 * @return CompanyRowMapper
+	 * @throws SQLException
+	 *             if the ResultSet has no company columns
+	 */
+
+	static CompanyRowMapper of(ResultSet rs) throws SQLException {
+		return new CompanyRowMapper(rs);
+	}
+
+	/**
+	 * The method gets the id of the Company in the current row.
+	 * 
+	 * @param rs
+	 *            The ResultSet the mapper was created for
+	 * @return Company's id
+	 * @throws SQLException
+	 */
+
+	String id(ResultSet rs) throws SQLException {
+		return rs.getString(id);
+	}
+
+	/**
+	 * The method creates the Company object from the current row.
+	 * 
+	 * @param rs
+	 *            The ResultSet the mapper was created for
+	 * @param couponsOfCompany
+	 *            The set of active coupons released by the Company
+	 * @return Company Company object
+	 * @throws SQLException
+	 */
+
+	Company mapRow(ResultSet rs, Set<Coupon> couponsOfCompany) throws SQLException {
+		Company company = new Company(rs.getString(id), rs.getString(compName), rs.getString(password),
+				rs.getString(email), couponsOfCompany, rs.getBoolean(isActive));
+		company.setVersion(rs.getInt(version));
+		company.clearChangedFields();
+		return company;
+	}
+
+}
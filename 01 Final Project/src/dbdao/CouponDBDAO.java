@@ -10,11 +10,18 @@ import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
 
 import connection.ConnectionPoolSingleton;
 import dao.CouponDAO;
+import dao.Page;
 import exceptions.ActionType;
 import exceptions.DBDAOException;
 import exceptions.EntryType;
@@ -23,12 +30,29 @@ import exceptions.FailedToGetListOfCouponsException;
 import exceptions.NotFoundException;
 import facades.ClientType;
 import javaBeans.Coupon;
+import javaBeans.CouponSearch;
 import javaBeans.CouponType;
 
 public class CouponDBDAO implements CouponDAO {
 
+	/** The cache of getCoupon shared by all the CouponDBDAO objects, null if it is off. */
+	private static final ExpiringLruCache<String, Coupon> COUPON_CACHE = DBDAOConfig.isCouponCacheEnabled()
+			? new ExpiringLruCache<String, Coupon>(DBDAOConfig.getCouponCacheSize(),
+					DBDAOConfig.getCouponCacheTtlMillis())
+			: null;
+
 	private ConnectionPoolSingleton pool = ConnectionPoolSingleton.getInstance();
 
+	/**
+	 * The interface of the lambdas that set the parameters of the streaming
+	 * queries.
+	 */
+
+	@FunctionalInterface
+	private interface ParameterSetter {
+		void setParameters(PreparedStatement preparedStatement) throws SQLException;
+	}
+
 	/**
 	 * The method converts a Coupon object into a database record. 
 	 * 
@@ -42,8 +66,7 @@ public class CouponDBDAO implements CouponDAO {
 		String query = "INSERT INTO coupon "
 				+ "(ID, TITLE, START_DATE, END_DATE, AMOUNT, TYPE, MESSAGE, PRICE, IMAGE) "
 				+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
-		Connection connection = pool.getConnection();
-		try {
+		try (Connection connection = pool.getConnection()) {
 			PreparedStatement preparedStatement = connection.prepareStatement(query);
 			preparedStatement.setString(1, coupon.getId());
 			preparedStatement.setString(2, coupon.getTitle());
@@ -59,7 +82,75 @@ public class CouponDBDAO implements CouponDAO {
 			e.printStackTrace();
 			throw new FailedToException(EntryType.COUPON, ActionType.CREATE, coupon.getId(), e);
 		} finally {
-			pool.returnConnection(connection);
+			invalidateCachedCoupon(coupon.getId());
+		}
+	}
+
+	/**
+	 * The method creates the database records of many Coupons and links them
+	 * to the Company that releases them. The rows are sent to the database by
+	 * JDBC batches of batchSize (db.properties) rows in one transaction, so
+	 * either all the Coupons are created or none of them.
+	 * 
+	 * @param coupons
+	 *            The Coupon objects
+	 * @param compId
+	 *            The ID of the Company releases the Coupons
+	 * @throws FailedToException
+	 */
+
+	@Override
+	public void createCoupons(Collection<Coupon> coupons, String compId) throws FailedToException {
+		String query = "INSERT INTO coupon "
+				+ "(ID, TITLE, START_DATE, END_DATE, AMOUNT, TYPE, MESSAGE, PRICE, IMAGE) "
+				+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+		String joinQuery = "INSERT INTO company_coupon "
+				+ "(COMP_ID, COUPON_ID) "
+				+ "VALUES (?, ?)";
+		int batchSize = DBDAOConfig.getBatchSize();
+		try (Connection connection = pool.getConnection()) {
+			connection.setAutoCommit(false);
+			PreparedStatement preparedStatement = connection.prepareStatement(query);
+			PreparedStatement preparedStatement01 = connection.prepareStatement(joinQuery);
+			int batched = 0;
+			for (Coupon coupon : coupons) {
+				preparedStatement.setString(1, coupon.getId());
+				preparedStatement.setString(2, coupon.getTitle());
+				preparedStatement.setDate(3, coupon.getStartDate());
+				preparedStatement.setDate(4, coupon.getEndDate());
+				preparedStatement.setInt(5, coupon.getAmount());
+				preparedStatement.setString(6, coupon.getType().toString());
+				preparedStatement.setString(7, coupon.getMessage());
+				preparedStatement.setDouble(8, coupon.getPrice());
+				preparedStatement.setString(9, coupon.getImage());
+				preparedStatement.addBatch();
+				preparedStatement01.setString(1, compId);
+				preparedStatement01.setString(2, coupon.getId());
+				preparedStatement01.addBatch();
+				if (++batched == batchSize) {
+					// the coupons go first, the links refer to them
+					preparedStatement.executeBatch();
+					preparedStatement01.executeBatch();
+					batched = 0;
+				}
+			}
+			if (batched > 0) {
+				preparedStatement.executeBatch();
+				preparedStatement01.executeBatch();
+			}
+			connection.commit();
+		} catch (SQLException e) {
+			// the pool rolls the transaction back when the connection is returned
+			e.printStackTrace();
+			throw new FailedToException(EntryType.COUPON, ActionType.CREATE, compId, e);
+		} finally {
+			if (COUPON_CACHE != null) {
+				List<String> ids = new ArrayList<String>(coupons.size());
+				for (Coupon coupon : coupons) {
+					ids.add(coupon.getId());
+				}
+				invalidateCachedCoupons(ids);
+			}
 		}
 	}
 
@@ -79,8 +170,7 @@ public class CouponDBDAO implements CouponDAO {
 		String query = "INSERT INTO company_coupon "
 				+ "(COMP_ID, COUPON_ID) "
 				+ "VALUES (?, ?)";
-		Connection connection = pool.getConnection();
-		try {
+		try (Connection connection = pool.getConnection()) {
 			PreparedStatement preparedStatement = connection.prepareStatement(query);
 			preparedStatement.setString(1, compId);
 			preparedStatement.setString(2, coupon.getId());
@@ -88,8 +178,6 @@ public class CouponDBDAO implements CouponDAO {
 		} catch (SQLException e) {
 			e.printStackTrace();
 			throw new FailedToException(EntryType.COUPON, ActionType.JOIN, coupon.getId(), e);
-		} finally {
-			pool.returnConnection(connection);
 		}
 
 	}
@@ -110,8 +198,7 @@ public class CouponDBDAO implements CouponDAO {
 		String query = "INSERT INTO customer_coupon "
 				+ "(CUST_ID, COUPON_ID) "
 				+ "VALUES (?, ?)";
-		Connection connection = pool.getConnection();
-		try {
+		try (Connection connection = pool.getConnection()) {
 			PreparedStatement preparedStatement = connection.prepareStatement(query);
 			preparedStatement.setString(1, custId);
 			preparedStatement.setString(2, coupon.getId());
@@ -119,8 +206,6 @@ public class CouponDBDAO implements CouponDAO {
 		} catch (SQLException e) {
 			e.printStackTrace();
 			throw new FailedToException(EntryType.COUPON, ActionType.JOIN, coupon.getId(), e);
-		} finally {
-			pool.returnConnection(connection);
 		}
 
 	}
@@ -141,15 +226,8 @@ public class CouponDBDAO implements CouponDAO {
 	@Override
 	public void removeCoupon(Coupon coupon) throws NotFoundException, FailedToException {
 		coupon.setActive(false);
-		String query = "UPDATE coupon cp "
-				+ "JOIN company_coupon cc on cp.ID = cc.COUPON_ID "
-				+ "JOIN customer_coupon ccp on ccp.COUPON_ID = cp.ID "
-				+ "SET cc.IS_ACTIVE = false, "
-				+ "cp.IS_ACTIVE = false, "
-				+ "ccp.IS_ACTIVE = false "
-				+ "WHERE cp.ID = ?;";
-		Connection connection = pool.getConnection();
-		try {
+		String query = Queries.REMOVE_COUPON;
+		try (Connection connection = pool.getConnection()) {
 			PreparedStatement preparedStatement = connection.prepareStatement(query);
 			preparedStatement.setString(1, coupon.getId());
 			preparedStatement.executeUpdate();
@@ -160,83 +238,81 @@ public class CouponDBDAO implements CouponDAO {
 			e.printStackTrace();
 			throw new FailedToException(EntryType.COUPON, ActionType.REMOVE, coupon.getId(), e);
 		} finally {
-			pool.returnConnection(connection);
+			invalidateCachedCoupon(coupon.getId());
 		}
 	}
 
 	/**
 	 * The method updates Coupon's data in the database according to changes
-	 * that were made in the Coupon object.
+	 * that were made in the Coupon object. Only the changed fields are written
+	 * (see Coupon.getChangedFields), nothing is done if there are none. The
+	 * record is updated only if it still has the version of the Coupon object,
+	 * so the purchases that changed the amount after the Coupon was read are
+	 * not overwritten. After the update the object gets the new version.
 	 * 
 	 * @param coupon
 	 *            The Coupon object
 	 * @throws NotFoundException
+	 * @throws StaleVersionException
+	 *             if the record was updated after the Coupon was read
 	 * @throws FailedToException
 	 */
 
 	@Override
 	public void updateCoupon(Coupon coupon) throws NotFoundException, FailedToException {
-		String query = "UPDATE coupon "
-				+ "SET TITLE = ?, START_DATE =?, END_DATE = ?, "
-				+ "AMOUNT = ?, TYPE = ?, MESSAGE = ?, PRICE = ?, IMAGE = ? "
-				+ "WHERE ID = ?";
-		Connection connection = pool.getConnection();
-		try {
-			PreparedStatement preparedStatement = connection.prepareStatement(query);
-			preparedStatement.setString(1, coupon.getTitle());
-			preparedStatement.setDate(2, (Date) coupon.getStartDate());
-			preparedStatement.setDate(3, (Date) coupon.getEndDate());
-			preparedStatement.setInt(4, coupon.getAmount());
-			preparedStatement.setString(5, coupon.getType().toString());
-			preparedStatement.setString(6, coupon.getMessage());
-			preparedStatement.setDouble(7, coupon.getPrice());
-			preparedStatement.setString(8, coupon.getImage());
-			preparedStatement.setString(9, coupon.getId());
-			preparedStatement.executeUpdate();
-			if (preparedStatement.getUpdateCount() == 0) {
-				throw new NotFoundException(exceptions.EntryType.COUPON, coupon.getId());
+		PartialUpdate update = new PartialUpdate("coupon");
+		for (Coupon.Field field : coupon.getChangedFields()) {
+			switch (field) {
+			case TITLE:
+				update.set("TITLE", coupon.getTitle());
+				break;
+			case START_DATE:
+				update.set("START_DATE", coupon.getStartDate());
+				break;
+			case END_DATE:
+				update.set("END_DATE", coupon.getEndDate());
+				break;
+			case AMOUNT:
+				update.set("AMOUNT", coupon.getAmount());
+				break;
+			case TYPE:
+				update.set("TYPE", coupon.getType().toString());
+				break;
+			case MESSAGE:
+				update.set("MESSAGE", coupon.getMessage());
+				break;
+			case PRICE:
+				update.set("PRICE", coupon.getPrice());
+				break;
+			case IMAGE:
+				update.set("IMAGE", coupon.getImage());
+				break;
+			}
+		}
+		if (update.isEmpty()) {
+			return;
+		}
+		try (Connection connection = pool.getConnection()) {
+			if (update.execute(connection, coupon.getId(), coupon.getVersion()) == 0) {
+				OptimisticLock.conflict(connection, EntryType.COUPON, coupon.getId(), coupon.getVersion());
+			}
+			if (coupon.getVersion() != Coupon.ANY_VERSION) {
+				coupon.setVersion(coupon.getVersion() + 1);
 			}
+			coupon.clearChangedFields();
 		} catch (SQLException e) {
 			e.printStackTrace();
 			throw new FailedToException(EntryType.COUPON, ActionType.UPDATE, coupon.getId(), e);
 		} finally {
-			pool.returnConnection(connection);
+			invalidateCachedCoupon(coupon.getId());
 		}
 
 	}
 
-	/**
-	 * This is the auxiliary method that helps to avoid code duplication. The
-	 * method creates the Coupon object from the ResultSet received from the
-	 * database. Before using the method you should check if the resultset is
-	 * not null.
-	 * 
-	 * @param rs
-	 *            ResultSet received from the database that includes one Coupon
-	 *            record
-	 * @return Coupon Coupon object
-	 * @throws SQLException
-	 */
-
-	static Coupon parseDBCoupon(ResultSet rs) throws SQLException {
-		Coupon coupon = new Coupon();
-		String id = rs.getString("ID");
-		String title = rs.getString("TITLE");
-		Date startDate = rs.getDate("START_DATE");
-		Date endDate = rs.getDate("END_DATE");
-		int amount = rs.getInt("AMOUNT");
-		String type = rs.getString("TYPE");
-		String message = rs.getString("MESSAGE");
-		double price = rs.getDouble("PRICE");
-		String image = rs.getString("IMAGE");
-		boolean isActive = rs.getBoolean("IS_ACTIVE");
-		coupon = new Coupon(id, title, startDate, endDate, amount, CouponType.valueOf(type), message, price, image,
-				isActive);
-		return coupon;
-	}
-
 	/**
 	 * The method gets the Coupon object from the database record by Coupon ID.
+	 * If couponCache is on in db.properties, the Coupon is read through the
+	 * cache and the caller gets its own copy of the cached Coupon.
 	 * 
 	 * @param id
 	 *            The Coupon id
@@ -246,29 +322,84 @@ public class CouponDBDAO implements CouponDAO {
 
 	@Override
 	public Coupon getCoupon(String id) throws NotFoundException, FailedToGetListOfCouponsException {
-		String query = "SELECT * FROM coupon WHERE ID = ?";
-		Connection connection = pool.getConnection();
+		if (COUPON_CACHE == null) {
+			return readCoupon(id);
+		}
+		Coupon cached = COUPON_CACHE.get(id);
+		if (cached == null) {
+			long generation = COUPON_CACHE.getGeneration();
+			cached = readCoupon(id);
+			COUPON_CACHE.put(id, cached, generation);
+		}
+		return copy(cached);
+	}
+
+	private Coupon readCoupon(String id) throws NotFoundException, FailedToGetListOfCouponsException {
+		String query = Queries.COUPON_BY_ID;
 		Coupon coupon = null;
-		try {
+		try (Connection connection = pool.getConnection()) {
 			PreparedStatement preparedStatement = connection.prepareStatement(query);
 			preparedStatement.setString(1, id);
 			ResultSet rs = preparedStatement.executeQuery();
 			if (!rs.next()) {
 				throw new NotFoundException(EntryType.COUPON, id);
 			}
-			coupon = parseDBCoupon(rs);
+			coupon = CouponRowMapper.of(rs).mapRow(rs);
 
 		} catch (SQLException e) {
 			e.printStackTrace();
 			throw new FailedToGetListOfCouponsException(e);
-		} finally {
-			pool.returnConnection(connection);
 		}
 
 		return coupon;
 
 	}
 
+	private static Coupon copy(Coupon coupon) {
+		Coupon copy = new Coupon(coupon.getId(), coupon.getTitle(), coupon.getStartDate(), coupon.getEndDate(),
+				coupon.getAmount(), coupon.getType(), coupon.getMessage(), coupon.getPrice(), coupon.getImage(),
+				coupon.isActive());
+		copy.setVersion(coupon.getVersion());
+		copy.clearChangedFields();
+		return copy;
+	}
+
+	/**
+	 * The method removes the Coupon from the cache of getCoupon.
+	 * 
+	 * @param id
+	 *            The Coupon id
+	 */
+
+	static void invalidateCachedCoupon(String id) {
+		if (COUPON_CACHE != null) {
+			COUPON_CACHE.invalidate(id);
+		}
+	}
+
+	/**
+	 * The method removes the Coupons from the cache of getCoupon.
+	 * 
+	 * @param ids
+	 *            The Coupon ids
+	 */
+
+	static void invalidateCachedCoupons(Collection<String> ids) {
+		if (COUPON_CACHE != null) {
+			COUPON_CACHE.invalidate(ids);
+		}
+	}
+
+	/**
+	 * The method gets the hits and the misses of the cache of getCoupon.
+	 * 
+	 * @return CacheStats or null if couponCache is off
+	 */
+
+	public static CacheStats getCouponCacheStats() {
+		return COUPON_CACHE == null ? null : COUPON_CACHE.getStats();
+	}
+
 	/**
 	 * The method gets the list of all active coupons from the database.
 	 * 
@@ -278,26 +409,74 @@ public class CouponDBDAO implements CouponDAO {
 
 	@Override
 	public Set<Coupon> getAllCoupons() throws FailedToGetListOfCouponsException {
-		String query = "SELECT * FROM coupon WHERE IS_ACTIVE = TRUE";
-		Connection connection = pool.getConnection();
+		String query = Queries.ALL_COUPONS;
 		Coupon coupon = null;
 		Set<Coupon> activeCoupons = new HashSet<Coupon>();
-		try {
+		try (Connection connection = pool.getReadConnection()) {
 			PreparedStatement preparedStatement = connection.prepareStatement(query);
 			ResultSet rs = preparedStatement.executeQuery();
+			CouponRowMapper mapper = CouponRowMapper.of(rs);
 			while (rs.next()) {
-				coupon = parseDBCoupon(rs);
+				coupon = mapper.mapRow(rs);
 				activeCoupons.add(coupon);
 			}
 		} catch (SQLException e) {
 			e.printStackTrace();
 			throw new FailedToGetListOfCouponsException(e);
-		} finally {
-			pool.returnConnection(connection);
 		}
 		return activeCoupons;
 	}
 
+	/**
+	 * The method gets one page of the active coupons that were released by
+	 * specific Company or were purchased by specific Customer ordered by
+	 * END_DATE and ID. The page is read by the condition on the END_DATE and
+	 * ID of the last coupon of the previous page and LIMIT, so it costs the
+	 * same for any page.
+	 * 
+	 * @param clientType
+	 *            Enum ClientType
+	 * @param clientId
+	 *            The ID of Company or Customer
+	 * @param pageSize
+	 *            The number of coupons in the page
+	 * @param pageToken
+	 *            The token of the previous page or null for the first page
+	 * @return Page of Coupons
+	 * @throws FailedToGetListOfCouponsException
+	 */
+
+	@Override
+	public Page<Coupon> getCoupons(ClientType clientType, String clientId, int pageSize, String pageToken)
+			throws FailedToGetListOfCouponsException {
+		PageToken.checkPageSize(pageSize);
+		String query = Queries.couponsPage(clientType, pageToken != null);
+		List<Coupon> coupons = new ArrayList<Coupon>();
+		try (Connection connection = pool.getReadConnection()) {
+			PreparedStatement preparedStatement = connection.prepareStatement(query);
+			int index = 1;
+			preparedStatement.setString(index++, clientId);
+			if (pageToken != null) {
+				String[] keys = PageToken.decode(pageToken, 2);
+				Date endDate = Date.valueOf(keys[0]);
+				preparedStatement.setDate(index++, endDate);
+				preparedStatement.setDate(index++, endDate);
+				preparedStatement.setString(index++, keys[1]);
+			}
+			preparedStatement.setInt(index, pageSize + 1);
+			ResultSet rs = preparedStatement.executeQuery();
+			CouponRowMapper mapper = CouponRowMapper.of(rs);
+			while (rs.next()) {
+				coupons.add(mapper.mapRow(rs));
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+			throw new FailedToGetListOfCouponsException(e);
+		}
+		return PageToken.toPage(coupons, pageSize,
+				coupon -> new String[] { coupon.getEndDate().toString(), coupon.getId() });
+	}
+
 	/**
 	 * The method gets the list of all active coupons by coupon type from the
 	 * database that were released by specific Company or were purchased by
@@ -315,41 +494,22 @@ public class CouponDBDAO implements CouponDAO {
 
 	@Override
 	public Set<Coupon> getCouponByType(CouponType type, ClientType clientType, String clientId) throws FailedToGetListOfCouponsException {
-		String query = "";
-		String conditions = "WHERE c.ID = ? "
-				+ "AND cp.TYPE = ? "
-				+ "AND cp.IS_ACTIVE = TRUE";
-		switch (clientType){
-		case COMPANY: query = "SELECT * FROM company c "
-				+ "INNER JOIN company_coupon cc ON c.ID = cc.COMP_ID "
-				+ "INNER JOIN coupon cp ON cc.COUPON_ID = cp.ID "
-				+ conditions;
-		break;
-		case CUSTOMER: query = "SELECT * FROM customer c "
-				+ "INNER JOIN customer_coupon cc ON c.ID = cc.CUST_ID "
-				+ "INNER JOIN coupon cp ON cc.COUPON_ID = cp.ID "
-				+ conditions;
-		break;
-		default:
-			break;
-		}
-		Connection connection = pool.getConnection();
+		String query = Queries.couponsByType(clientType);
 		Coupon coupon = null;
 		Set<Coupon> couponsByType = new HashSet<Coupon>();
-		try {
+		try (Connection connection = pool.getReadConnection()) {
 			PreparedStatement preparedStatement = connection.prepareStatement(query);
 			preparedStatement.setString(1, clientId);
 			preparedStatement.setString(2, type.toString());
 			ResultSet rs = preparedStatement.executeQuery();
+			CouponRowMapper mapper = CouponRowMapper.of(rs);
 			while (rs.next()) {
-				coupon = parseDBCoupon(rs);
+				coupon = mapper.mapRow(rs);
 				couponsByType.add(coupon);
 			}
 		} catch (SQLException e) {
 			e.printStackTrace();
 			throw new FailedToGetListOfCouponsException(e);
-		} finally {
-			pool.returnConnection(connection);
 		}
 		return couponsByType;
 	}
@@ -370,41 +530,22 @@ public class CouponDBDAO implements CouponDAO {
 	 */
 	
 	public Set<Coupon> getCouponByPrice(double price, ClientType clientType, String clientId) throws FailedToGetListOfCouponsException {
-		String query = "";
-		String conditions = "WHERE c.ID = ? "
-				+ "AND cp.PRICE < ? "
-				+ "AND cp.IS_ACTIVE = TRUE";
-		switch (clientType){
-		case COMPANY: query = "SELECT * FROM company c "
-				+ "INNER JOIN company_coupon cc ON c.ID = cc.COMP_ID "
-				+ "INNER JOIN coupon cp ON cc.COUPON_ID = cp.ID "
-				+ conditions;
-		break;
-		case CUSTOMER: query = "SELECT * FROM customer c "
-				+ "INNER JOIN customer_coupon cc ON c.ID = cc.CUST_ID "
-				+ "INNER JOIN coupon cp ON cc.COUPON_ID = cp.ID "
-				+ conditions;
-		break;
-		default:
-			break;
-		}
-		Connection connection = pool.getConnection();
+		String query = Queries.couponsByPrice(clientType);
 		Coupon coupon = null;
 		Set<Coupon> couponsByPrice = new HashSet<Coupon>();
-		try {
+		try (Connection connection = pool.getReadConnection()) {
 			PreparedStatement preparedStatement = connection.prepareStatement(query);
 			preparedStatement.setString(1, clientId);
 			preparedStatement.setDouble(2, price);
 			ResultSet rs = preparedStatement.executeQuery();
+			CouponRowMapper mapper = CouponRowMapper.of(rs);
 			while (rs.next()) {
-				coupon = parseDBCoupon(rs);
+				coupon = mapper.mapRow(rs);
 				couponsByPrice.add(coupon);
 			}
 		} catch (SQLException e) {
 			e.printStackTrace();
 			throw new FailedToGetListOfCouponsException(e);
-		} finally {
-			pool.returnConnection(connection);
 		}
 		return couponsByPrice;
 	}
@@ -423,35 +564,190 @@ public class CouponDBDAO implements CouponDAO {
 	
 	public Set<Coupon> getCouponByDate (Date date, String compId) throws FailedToGetListOfCouponsException{
 		
-		String query = "SELECT * FROM company c "
-				+ "INNER JOIN company_coupon cc ON c.ID = cc.COMP_ID "
-				+ "INNER JOIN coupon cp ON cc.COUPON_ID = cp.ID "
-				+ "WHERE c.ID = ? "
-				+ "AND cp.END_DATE < ? "
-				+ "AND cp.IS_ACTIVE = TRUE "
-				+ "AND cc.IS_ACTIVE = TRUE";
-		Connection connection = pool.getConnection();
+		String query = Queries.COUPONS_BY_DATE;
 		Coupon coupon = null;
 		Set<Coupon> couponsByType = new HashSet<Coupon>();
-		try {
+		try (Connection connection = pool.getReadConnection()) {
 			PreparedStatement preparedStatement = connection.prepareStatement(query);
 			preparedStatement.setString(1, compId);
 			preparedStatement.setDate(2, date);
 			ResultSet rs = preparedStatement.executeQuery();
+			CouponRowMapper mapper = CouponRowMapper.of(rs);
 			while (rs.next()) {
-				coupon = parseDBCoupon(rs);
+				coupon = mapper.mapRow(rs);
 				couponsByType.add(coupon);
 			}
 		} catch (SQLException e) {
 			e.printStackTrace();
 			throw new FailedToGetListOfCouponsException(e);
-		} finally {
-			pool.returnConnection(connection);
 		}
 		return couponsByType;
 		
 	}
 
+	/**
+	 * The method finds the active coupons of specific Company or Customer by
+	 * all the criteria of the search at once. Only the criteria that are set
+	 * become the conditions of the query, so the database filters, sorts and
+	 * limits the coupons in one query.
+	 * 
+	 * @param search
+	 *            The criteria of the search
+	 * @param clientType
+	 *            Enum ClientType
+	 * @param clientId
+	 *            The ID of Company or Customer
+	 * @return ArrayList of Coupons in the order of the search
+	 * @throws FailedToGetListOfCouponsException
+	 */
+
+	@Override
+	public List<Coupon> searchCoupons(CouponSearch search, ClientType clientType, String clientId)
+			throws FailedToGetListOfCouponsException {
+		List<Object> parameters = new ArrayList<Object>();
+		String query = Queries.searchCoupons(search, clientType, clientId, parameters);
+		List<Coupon> coupons = new ArrayList<Coupon>();
+		try (Connection connection = pool.getReadConnection()) {
+			PreparedStatement preparedStatement = connection.prepareStatement(query);
+			for (int i = 0; i < parameters.size(); i++) {
+				preparedStatement.setObject(i + 1, parameters.get(i));
+			}
+			ResultSet rs = preparedStatement.executeQuery();
+			CouponRowMapper mapper = CouponRowMapper.of(rs);
+			while (rs.next()) {
+				coupons.add(mapper.mapRow(rs));
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+			throw new FailedToGetListOfCouponsException(e);
+		}
+		return coupons;
+	}
+
+	/**
+	 * The method gets the stream of all active coupons. The coupons are read
+	 * from the database while the stream is consumed, so they never are all in
+	 * memory. The stream holds the connection and must be closed, the best way
+	 * is try-with-resources.
+	 * 
+	 * @return Stream of Coupons
+	 * @throws FailedToGetListOfCouponsException
+	 */
+
+	@Override
+	public Stream<Coupon> streamAllCoupons() throws FailedToGetListOfCouponsException {
+		return streamCoupons(Queries.ALL_COUPONS, preparedStatement -> {
+		});
+	}
+
+	/**
+	 * The method gets the stream of the active coupons by coupon type that
+	 * were released by specific Company or were purchased by specific Client.
+	 * The stream must be closed.
+	 * 
+	 * @param type
+	 *            Enum CouponType
+	 * @param clientType
+	 *            Enum ClientType
+	 * @param clientId
+	 *            The ID of Company or Customer
+	 * @return Stream of Coupons
+	 * @throws FailedToGetListOfCouponsException
+	 */
+
+	@Override
+	public Stream<Coupon> streamCouponByType(CouponType type, ClientType clientType, String clientId)
+			throws FailedToGetListOfCouponsException {
+		return streamCoupons(Queries.couponsByType(clientType), preparedStatement -> {
+			preparedStatement.setString(1, clientId);
+			preparedStatement.setString(2, type.toString());
+		});
+	}
+
+	/**
+	 * The method gets the stream of the active coupons under the definite
+	 * price that were released by specific Company or were purchased by
+	 * specific Client. The stream must be closed.
+	 * 
+	 * @param price
+	 *            The Coupon price
+	 * @param clientType
+	 *            Enum ClientType
+	 * @param clientId
+	 *            The ID of the Company or the Customer
+	 * @return Stream of Coupons
+	 * @throws FailedToGetListOfCouponsException
+	 */
+
+	@Override
+	public Stream<Coupon> streamCouponByPrice(double price, ClientType clientType, String clientId)
+			throws FailedToGetListOfCouponsException {
+		return streamCoupons(Queries.couponsByPrice(clientType), preparedStatement -> {
+			preparedStatement.setString(1, clientId);
+			preparedStatement.setDouble(2, price);
+		});
+	}
+
+	/**
+	 * The method gets the stream of the Coupons released by specific Company
+	 * that will end before definite date. The stream must be closed.
+	 * 
+	 * @param date
+	 *            The Date
+	 * @param compId
+	 *            The ID of the Company
+	 * @return Stream of Coupons
+	 * @throws FailedToGetListOfCouponsException
+	 */
+
+	@Override
+	public Stream<Coupon> streamCouponByDate(Date date, String compId) throws FailedToGetListOfCouponsException {
+		return streamCoupons(Queries.COUPONS_BY_DATE, preparedStatement -> {
+			preparedStatement.setString(1, compId);
+			preparedStatement.setDate(2, date);
+		});
+	}
+
+	/**
+	 * The method runs the query on a forward-only ResultSet with the fetch
+	 * size from db.properties (streamFetchSize), so MySQL sends the rows one
+	 * by one. The statement is not taken from the statement cache because it
+	 * is open while the stream is consumed.
+	 * 
+	 * @param query
+	 *            The query
+	 * @param parameters
+	 *            The lambda that sets the parameters of the query
+	 * @return Stream of Coupons that releases the connection on close()
+	 * @throws FailedToGetListOfCouponsException
+	 */
+
+	private Stream<Coupon> streamCoupons(String query, ParameterSetter parameters)
+			throws FailedToGetListOfCouponsException {
+		Connection connection = pool.getReadConnection();
+		PreparedStatement preparedStatement = null;
+		try {
+			preparedStatement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY,
+					ResultSet.CONCUR_READ_ONLY);
+			preparedStatement.setFetchSize(DBDAOConfig.getStreamFetchSize());
+			parameters.setParameters(preparedStatement);
+			ResultSet rs = preparedStatement.executeQuery();
+			return new ResultSetSpliterator<Coupon>(connection, preparedStatement, rs, CouponRowMapper.of(rs))
+					.stream();
+		} catch (SQLException e) {
+			e.printStackTrace();
+			try {
+				if (preparedStatement != null) {
+					preparedStatement.close();
+				}
+				connection.close();
+			} catch (SQLException e1) {
+				e1.printStackTrace();
+			}
+			throw new FailedToGetListOfCouponsException(e);
+		}
+	}
+
 	/**
 	 * This auxiliary method returns if the Coupon released by specific Company.
 	 * 
@@ -466,12 +762,9 @@ public class CouponDBDAO implements CouponDAO {
 
 	public boolean releasedByCompany (Coupon coupon, String compId) throws NotFoundException, FailedToException{
 
-		String query = "SELECT * FROM coupon cp "
-				+ "INNER JOIN company_coupon cc on cp.ID = cc.COUPON_ID "
-				+ "WHERE cp.ID = ?";
-		Connection connection = pool.getConnection();
+		String query = Queries.COMPANY_OF_COUPON;
 		String originalCompanyId = "";
-		try {
+		try (Connection connection = pool.getConnection()) {
 			PreparedStatement preparedStatement = connection.prepareStatement(query);
 			preparedStatement.setString(1, coupon.getId());
 			ResultSet rs = preparedStatement.executeQuery();
@@ -483,8 +776,6 @@ public class CouponDBDAO implements CouponDAO {
 		} catch (SQLException e) {
 			e.printStackTrace();
 			throw new FailedToException(EntryType.COUPON, ActionType.GET, coupon.getId());
-		} finally {
-			pool.returnConnection(connection);
 		}
 		return originalCompanyId.equals(compId);
 	}
@@ -503,13 +794,9 @@ public class CouponDBDAO implements CouponDAO {
 
 	public boolean allowedToPurchase (Coupon coupon, String custId) throws FailedToException{
 		
-		String query = "SELECT * FROM customer_coupon "
-				+ "WHERE CUST_ID = ? "
-				+ "AND COUPON_ID = ? "
-				+ "AND IS_ACTIVE = TRUE";
-		Connection connection = pool.getConnection();
+		String query = Queries.OWNED_COUPON;
 		
-		try {
+		try (Connection connection = pool.getConnection()) {
 			PreparedStatement preparedStatement = connection.prepareStatement(query);
 			preparedStatement.setString(1, custId);
 			preparedStatement.setString(2, coupon.getId());
@@ -534,13 +821,9 @@ public class CouponDBDAO implements CouponDAO {
 	
 	public boolean enoughCouponsToPurchase (Coupon coupon) throws FailedToException{
 		
-		String query = "SELECT * FROM coupon "
-				+ "WHERE ID = ? "
-				+ "AND IS_ACTIVE = TRUE "
-				+ "FOR UPDATE";
-		Connection connection = pool.getConnection();
+		String query = Queries.COUPON_AMOUNT_FOR_UPDATE;
 		
-		try {
+		try (Connection connection = pool.getConnection()) {
 			PreparedStatement preparedStatement = connection.prepareStatement(query);
 			preparedStatement.setString(1, coupon.getId());
 			ResultSet rs = preparedStatement.executeQuery();
@@ -551,20 +834,179 @@ public class CouponDBDAO implements CouponDAO {
 		}
 	}
 
+	/**
+	 * The method purchases the Coupon for the Customer in one transaction.
+	 * First it takes one coupon from the stock by the conditional decrement,
+	 * which also locks the Coupon row, so the purchases of the same Coupon
+	 * are serialized and the stock never becomes negative. Then it links the
+	 * Coupon to the Customer only if the Customer doesn't own it yet. If any
+	 * of the steps changes nothing the transaction is rolled back. If
+	 * purchaseJournal is on in db.properties, the purchase is done by
+	 * PurchaseJournal in one transaction with the other purchases and the
+	 * method waits for its commit.
+	 * 
+	 * @param couponId
+	 *            The ID of the Coupon
+	 * @param custId
+	 *            The ID of the Customer who purchases the Coupon
+	 * @return PurchaseOutcome (SOLD_OUT also for inactive or unknown Coupon)
+	 * @throws FailedToException
+	 */
+
+	@Override
+	public PurchaseOutcome purchase(String couponId, String custId) throws FailedToException {
+		if (DBDAOConfig.isPurchaseJournalEnabled()) {
+			try {
+				return PurchaseJournal.getInstance().purchase(couponId, custId).join();
+			} catch (CompletionException e) {
+				if (e.getCause() instanceof FailedToException) {
+					throw (FailedToException) e.getCause();
+				}
+				throw new FailedToException(EntryType.COUPON, ActionType.JOIN, couponId, e.getCause());
+			}
+		}
+		try (Connection connection = pool.getConnection()) {
+			connection.setAutoCommit(false);
+			PurchaseOutcome outcome = purchaseInTransaction(connection, couponId, custId);
+			if (outcome == PurchaseOutcome.PURCHASED) {
+				connection.commit();
+			} else {
+				connection.rollback();
+			}
+			return outcome;
+		} catch (SQLException e) {
+			e.printStackTrace();
+			throw new FailedToException(EntryType.COUPON, ActionType.JOIN, couponId, e);
+		} finally {
+			// the amount has changed
+			invalidateCachedCoupon(couponId);
+		}
+	}
+
+	/**
+	 * The method runs the steps of the purchase in the transaction of the
+	 * caller, the caller commits the purchase or rolls it back.
+	 * 
+	 * @param connection
+	 *            The connection with the open transaction
+	 * @param couponId
+	 *            The ID of the Coupon
+	 * @param custId
+	 *            The ID of the Customer who purchases the Coupon
+	 * @return PurchaseOutcome, only PURCHASED should be committed
+	 * @throws SQLException
+	 */
+
+	static PurchaseOutcome purchaseInTransaction(Connection connection, String couponId, String custId)
+			throws SQLException {
+		PreparedStatement preparedStatement = connection.prepareStatement(Queries.TAKE_FROM_STOCK);
+		preparedStatement.setString(1, couponId);
+		if (preparedStatement.executeUpdate() == 0) {
+			return PurchaseOutcome.SOLD_OUT;
+		}
+		PreparedStatement preparedStatement01 = connection.prepareStatement(Queries.JOIN_IF_NOT_OWNED);
+		preparedStatement01.setString(1, custId);
+		preparedStatement01.setString(2, couponId);
+		preparedStatement01.setString(3, custId);
+		preparedStatement01.setString(4, couponId);
+		if (preparedStatement01.executeUpdate() == 0) {
+			return PurchaseOutcome.ALREADY_OWNED;
+		}
+		return PurchaseOutcome.PURCHASED;
+	}
+
+	/**
+	 * The method runs the steps of many purchases in the transaction of the
+	 * caller with one batch per step. First every Customer is linked to the
+	 * Coupon if the Customer doesn't own it yet, then one coupon is taken from
+	 * the stock for every new link and the links of the sold out Coupons are
+	 * deleted. The batches keep the order of the purchases, so the purchases
+	 * of the same Coupon get the stock in turn, and a Customer who already
+	 * owns the Coupon doesn't take the stock of the next one. The caller
+	 * commits the purchases.
+	 * 
+	 * @param couponIds
+	 *            The IDs of the Coupons
+	 * @param custIds
+	 *            The IDs of the Customers, one for every Coupon
+	 * @return PurchaseOutcome of every purchase or null if the driver didn't
+	 *         report the number of the updated rows, then the caller should
+	 *         roll the batches back and run the purchases one by one
+	 * @throws SQLException
+	 *             if any of the purchases failed
+	 */
+
+	static PurchaseOutcome[] purchaseInBatch(Connection connection, List<String> couponIds, List<String> custIds)
+			throws SQLException {
+		PurchaseOutcome[] outcomes = new PurchaseOutcome[couponIds.size()];
+		PreparedStatement preparedStatement = connection.prepareStatement(Queries.JOIN_IF_NOT_OWNED);
+		for (int i = 0; i < outcomes.length; i++) {
+			preparedStatement.setString(1, custIds.get(i));
+			preparedStatement.setString(2, couponIds.get(i));
+			preparedStatement.setString(3, custIds.get(i));
+			preparedStatement.setString(4, couponIds.get(i));
+			preparedStatement.addBatch();
+		}
+		int[] joined = preparedStatement.executeBatch();
+		if (!isCounted(joined, outcomes.length)) {
+			return null;
+		}
+		List<Integer> linked = new ArrayList<Integer>();
+		PreparedStatement preparedStatement01 = connection.prepareStatement(Queries.TAKE_FROM_STOCK);
+		for (int i = 0; i < outcomes.length; i++) {
+			if (joined[i] == 0) {
+				outcomes[i] = PurchaseOutcome.ALREADY_OWNED;
+			} else {
+				linked.add(i);
+				preparedStatement01.setString(1, couponIds.get(i));
+				preparedStatement01.addBatch();
+			}
+		}
+		if (linked.isEmpty()) {
+			return outcomes;
+		}
+		int[] taken = preparedStatement01.executeBatch();
+		if (!isCounted(taken, linked.size())) {
+			return null;
+		}
+		PreparedStatement preparedStatement02 = connection.prepareStatement(Queries.UNDO_JOIN);
+		boolean soldOut = false;
+		for (int k = 0; k < taken.length; k++) {
+			int i = linked.get(k);
+			if (taken[k] == 0) {
+				outcomes[i] = PurchaseOutcome.SOLD_OUT;
+				preparedStatement02.setString(1, custIds.get(i));
+				preparedStatement02.setString(2, couponIds.get(i));
+				preparedStatement02.addBatch();
+				soldOut = true;
+			} else {
+				outcomes[i] = PurchaseOutcome.PURCHASED;
+			}
+		}
+		if (soldOut) {
+			preparedStatement02.executeBatch();
+		}
+		return outcomes;
+	}
+
+	private static boolean isCounted(int[] counts, int batchSize) {
+		if (counts.length != batchSize) {
+			return false;
+		}
+		for (int count : counts) {
+			if (count == Statement.SUCCESS_NO_INFO) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	@Override
 	public void deleteExpiredCoupons(Date date) throws DBDAOException {
-		String query = "UPDATE coupon c "
-				+ "INNER JOIN company_coupon cc ON c.ID = cc.COUPON_ID "
-				+ "SET c.IS_ACTIVE = false, "
-				+ "cc.IS_ACTIVE = false "
-				+ "WHERE c.END_DATE < ?";
-		String query01 = "UPDATE coupon c "
-				+ "LEFT JOIN customer_coupon cc ON c.ID = cc.COUPON_ID "
-				+ "SET c.IS_ACTIVE = false, "
-				+ "cc.IS_ACTIVE = false WHERE c.END_DATE < ?";
-		Connection connection = pool.getConnection();
+		String query = Queries.EXPIRE_COMPANY_COUPONS;
+		String query01 = Queries.EXPIRE_CUSTOMER_COUPONS;
 		
-		try {
+		try (Connection connection = pool.getConnection()) {
 			PreparedStatement preparedStatement = connection.prepareStatement(query);
 			preparedStatement.setDate(1, date);
 			preparedStatement.executeUpdate();
@@ -575,6 +1017,10 @@ public class CouponDBDAO implements CouponDAO {
 		} catch (SQLException e) {
 			e.printStackTrace();
 			throw new DBDAOException("Failed to delete expired coupon");
+		} finally {
+			if (COUPON_CACHE != null) {
+				COUPON_CACHE.invalidateAll();
+			}
 		}
 	}
 }
@@ -0,0 +1,174 @@
+/**
+ * CouponDBDAOAsync runs the methods of CouponDAO on AsyncDAOExecutor, so the
+ * caller can start several independent database calls and wait for all of
+ * them at once.
+ * @author Alexandra Shapira
+ */
+
+package dbdao;
+
+import java.sql.Date;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+import dao.CouponDAO;
+import dao.CouponDAOAsync;
+import dao.Page;
+import facades.ClientType;
+import javaBeans.Coupon;
+import javaBeans.CouponSearch;
+import javaBeans.CouponType;
+
+public class CouponDBDAOAsync implements CouponDAOAsync {
+
+	private final CouponDAO couponDAO;
+
+	/**
+	 * Class constructor that wraps a new CouponDBDAO.
+	 */
+
+	public CouponDBDAOAsync() {
+		this(new CouponDBDAO());
+	}
+
+	/**
+	 * Class constructor.
+	 * 
+	 * @param couponDAO
+	 *            The blocking DAO whose methods are run asynchronously
+	 */
+
+	public CouponDBDAOAsync(CouponDAO couponDAO) {
+		this.couponDAO = couponDAO;
+	}
+
+	private static <T> CompletableFuture<T> supply(Callable<T> call) {
+		return AsyncDAOExecutor.getInstance().supply(call);
+	}
+
+	@Override
+	public CompletableFuture<Void> createCoupon(Coupon coupon) {
+		return supply(() -> {
+			couponDAO.createCoupon(coupon);
+			return null;
+		});
+	}
+
+	@Override
+	public CompletableFuture<Void> createCoupons(Collection<Coupon> coupons, String compId) {
+		return supply(() -> {
+			couponDAO.createCoupons(coupons, compId);
+			return null;
+		});
+	}
+
+	@Override
+	public CompletableFuture<Void> removeCoupon(Coupon coupon) {
+		return supply(() -> {
+			couponDAO.removeCoupon(coupon);
+			return null;
+		});
+	}
+
+	@Override
+	public CompletableFuture<Void> updateCoupon(Coupon coupon) {
+		return supply(() -> {
+			couponDAO.updateCoupon(coupon);
+			return null;
+		});
+	}
+
+	@Override
+	public CompletableFuture<Coupon> getCoupon(String id) {
+		return supply(() -> couponDAO.getCoupon(id));
+	}
+
+	@Override
+	public CompletableFuture<Set<Coupon>> getAllCoupons() {
+		return supply(() -> couponDAO.getAllCoupons());
+	}
+
+	@Override
+	public CompletableFuture<Page<Coupon>> getCoupons(ClientType clientType, String clientId, int pageSize,
+			String pageToken) {
+		return supply(() -> couponDAO.getCoupons(clientType, clientId, pageSize, pageToken));
+	}
+
+	@Override
+	public CompletableFuture<Set<Coupon>> getCouponByType(CouponType type, ClientType clientType, String clientId) {
+		return supply(() -> couponDAO.getCouponByType(type, clientType, clientId));
+	}
+
+	@Override
+	public CompletableFuture<Set<Coupon>> getCouponByPrice(double price, ClientType clientType, String clientId) {
+		return supply(() -> couponDAO.getCouponByPrice(price, clientType, clientId));
+	}
+
+	@Override
+	public CompletableFuture<Set<Coupon>> getCouponByDate(Date date, String compName) {
+		return supply(() -> couponDAO.getCouponByDate(date, compName));
+	}
+
+	@Override
+	public CompletableFuture<List<Coupon>> searchCoupons(CouponSearch search, ClientType clientType,
+			String clientId) {
+		return supply(() -> couponDAO.searchCoupons(search, clientType, clientId));
+	}
+
+	@Override
+	public CompletableFuture<Void> joinCouponCompany(Coupon coupon, String id) {
+		return supply(() -> {
+			couponDAO.joinCouponCompany(coupon, id);
+			return null;
+		});
+	}
+
+	@Override
+	public CompletableFuture<Void> joinCouponCustomer(Coupon coupon, String custId) {
+		return supply(() -> {
+			couponDAO.joinCouponCustomer(coupon, custId);
+			return null;
+		});
+	}
+
+	@Override
+	public CompletableFuture<Boolean> releasedByCompany(Coupon coupon, String id) {
+		return supply(() -> couponDAO.releasedByCompany(coupon, id));
+	}
+
+	@Override
+	public CompletableFuture<Boolean> enoughCouponsToPurchase(Coupon coupon) {
+		return supply(() -> couponDAO.enoughCouponsToPurchase(coupon));
+	}
+
+	@Override
+	public CompletableFuture<Boolean> allowedToPurchase(Coupon coupon, String custId) {
+		return supply(() -> couponDAO.allowedToPurchase(coupon, custId));
+	}
+
+	/**
+	 * The method purchases the Coupon for the Customer. If purchaseJournal is
+	 * on in db.properties, the future is the future of PurchaseJournal and no
+	 * thread waits for the commit.
+	 */
+
+	@Override
+	public CompletableFuture<PurchaseOutcome> purchase(String couponId, String custId) {
+		if (DBDAOConfig.isPurchaseJournalEnabled() && couponDAO instanceof CouponDBDAO) {
+			return PurchaseJournal.getInstance().purchase(couponId, custId);
+		}
+		return supply(() -> couponDAO.purchase(couponId, custId));
+	}
+
+	@Override
+	public CompletableFuture<Void> deleteExpiredCoupons(Date date) {
+		return supply(() -> {
+			couponDAO.deleteExpiredCoupons(date);
+			return null;
+		});
+	}
+
+}
@@ -0,0 +1,101 @@
+/**
+ * CouponRowMapper creates Coupon objects from the rows of a ResultSet. The
+ * indices of the columns are found once, when the mapper is created for the
+ * ResultSet, so the rows are read by index and not by name. The queries should
+ * select COLUMNS from the coupon table with the alias cp.
+ * @author Alexandra Shapira
+ */
+
+package dbdao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import javaBeans.Coupon;
+import javaBeans.CouponType;
+
+final class CouponRowMapper implements RowMapper<Coupon> {
+
+	static final String COLUMNS = "cp.ID, cp.TITLE, cp.START_DATE, cp.END_DATE, cp.AMOUNT, "
+			+ "cp.TYPE, cp.MESSAGE, cp.PRICE, cp.IMAGE, cp.IS_ACTIVE, cp.VERSION";
+
+	private static final CouponType[] TYPES = CouponType.values();
+
+	private final int id;
+	private final int title;
+	private final int startDate;
+	private final int endDate;
+	private final int amount;
+	private final int type;
+	private final int message;
+	private final int price;
+	private final int image;
+	private final int isActive;
+	private final int version;
+
+	private CouponRowMapper(ResultSet rs) throws SQLException {
+		id = rs.findColumn("ID");
+		title = rs.findColumn("TITLE");
+		startDate = rs.findColumn("START_DATE");
+		endDate = rs.findColumn("END_DATE");
+		amount = rs.findColumn("AMOUNT");
+		type = rs.findColumn("TYPE");
+		message = rs.findColumn("MESSAGE");
+		price = rs.findColumn("PRICE");
+		image = rs.findColumn("IMAGE");
+		isActive = rs.findColumn("IS_ACTIVE");
+		version = rs.findColumn("VERSION");
+	}
+
+	/**
+	 * The method creates the mapper for the ResultSet.
+	 * 
+	 * @param rs
+	 *            ResultSet with the coupon columns
+	 * @return CouponRowMapper
+	 * @throws SQLException
+	 *             if the ResultSet has no coupon columns
+	 */
+
+	static CouponRowMapper of(ResultSet rs) throws SQLException {
+		return new CouponRowMapper(rs);
+	}
+
+	/**
+	 * The method creates the Coupon object from the current row.
+	 * 
+	 * @param rs
+	 *            The ResultSet the mapper was created for
+	 * @return Coupon Coupon object
+	 * @throws SQLException
+	 */
+
+	@Override
+	public Coupon mapRow(ResultSet rs) throws SQLException {
+		Coupon coupon = new Coupon(rs.getString(id), rs.getString(title), rs.getDate(startDate),
+				rs.getDate(endDate), rs.getInt(amount), couponType(rs.getString(type)), rs.getString(message),
+				rs.getDouble(price), rs.getString(image), rs.getBoolean(isActive));
+		coupon.setVersion(rs.getInt(version));
+		coupon.clearChangedFields();
+		return coupon;
+	}
+
+	/**
+	 * The method finds the CouponType by its' name comparing it with the few
+	 * constants, that is cheaper than hashing the name in valueOf.
+	 * 
+	 * @param name
+	 *            The name of the CouponType
+	 * @return CouponType
+	 */
+
+	private static CouponType couponType(String name) {
+		for (CouponType couponType : TYPES) {
+			if (couponType.name().equals(name)) {
+				return couponType;
+			}
+		}
+		return CouponType.valueOf(name);
+	}
+
+}
@@ -10,12 +10,15 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import connection.ConnectionPoolSingleton;
 import dao.CustomerDAO;
+import dao.Page;
 import exceptions.ActionType;
 import exceptions.DBDAOException;
 import exceptions.EntryType;
@@ -24,11 +27,18 @@ import exceptions.FailedToGetListOfCouponsException;
 import exceptions.NotFoundException;
 import javaBeans.Coupon;
 import javaBeans.Customer;
+import javaBeans.LazyCouponSet;
 
 public class CustomerDBDAO implements CustomerDAO {
 
 	private static ConnectionPoolSingleton pool = ConnectionPoolSingleton.getInstance();
 
+	/** The cache of getCustomerByParameter and login shared by all the CustomerDBDAO objects, null if it is off. */
+	private static final IdentityCache<Customer> CUSTOMER_CACHE = DBDAOConfig.isIdentityCacheEnabled()
+			? new IdentityCache<Customer>(DBDAOConfig.getIdentityCacheSize(), DBDAOConfig.getIdentityCacheTtlMillis(),
+					Customer::getId, Customer::getCustName)
+			: null;
+
 	/**
 	 * The method converts a Customer object into a database record.
 	 * 
@@ -42,8 +52,7 @@ public class CustomerDBDAO implements CustomerDAO {
 		String query = "INSERT INTO customer "
 				+ "(ID, CUST_NAME, PASSWORD) "
 				+ "VALUES (?, ?, ?)";
-		Connection connection = pool.getConnection();
-		try {
+		try (Connection connection = pool.getConnection()) {
 			PreparedStatement preparedStatement = connection.prepareStatement(query);
 			preparedStatement.setString(1, customer.getId());
 			preparedStatement.setString(2, customer.getCustName());
@@ -53,7 +62,7 @@ public class CustomerDBDAO implements CustomerDAO {
 			e.printStackTrace();
 			throw new FailedToException(EntryType.CUSTOMER, ActionType.CREATE, customer.getId(), e);
 		} finally {
-			pool.returnConnection(connection);
+			invalidateCached(customer.getId());
 		}
 
 	}
@@ -73,85 +82,104 @@ public class CustomerDBDAO implements CustomerDAO {
 
 	@Override
 	public void removeCustomer(Customer customer) throws NotFoundException, FailedToException {
-		String query = "UPDATE customer c "
-						+ "INNER JOIN customer_coupon cc on c.ID = cc.CUST_ID "
-						+ "SET cc.IS_ACTIVE = false, "
-							+ "c.IS_ACTIVE = false "
-						+ "WHERE c.ID = ?";
-		Connection connection = pool.getConnection();
+		removeCustomer(customer, RemovalListener.NONE);
+	}
+
+	/**
+	 * The method deactivates the Customer like removeCustomer(Customer) in
+	 * chunks of removalChunkSize rows, each in its own transaction (see
+	 * CascadeRemover). If the method fails, calling it again continues the
+	 * removal.
+	 * 
+	 * @param customer
+	 *            The Customer that should be removed
+	 * @param listener
+	 *            The listener of the progress
+	 * @throws NotFoundException
+	 * @throws FailedToException
+	 */
+
+	@Override
+	public void removeCustomer(Customer customer, RemovalListener listener) throws NotFoundException, FailedToException {
 		try {
-			PreparedStatement preparedStatement = connection.prepareStatement(query);
-			preparedStatement.setString(1, customer.getId());
-			preparedStatement.executeUpdate();
-			if (preparedStatement.getUpdateCount() == 0) {
+			if (!new CascadeRemover(pool, listener).removeCustomer(customer.getId())) {
 				throw new NotFoundException(EntryType.CUSTOMER, customer.getId());
 			}
 		} catch (SQLException e) {
 			e.printStackTrace();
 			throw new FailedToException(EntryType.CUSTOMER, ActionType.REMOVE, customer.getId(), e);
 		} finally {
-			pool.returnConnection(connection);
+			invalidateCached(customer.getId());
 		}
 	}
 
 	/**
 	 * The method updates Customer's data in the database according to changes
-	 * that were made in the Customer object.
+	 * that were made in the Customer object. Only the changed fields are
+	 * written (see Customer.getChangedFields), nothing is done if there are
+	 * none. The record is updated only if it still has the version of the
+	 * Customer object, after the update the object gets the new version.
 	 * 
-	 * @param company
+	 * @param customer
 	 *            The Customer object
 	 * @throws NotFoundException
+	 * @throws StaleVersionException
+	 *             if the record was updated after the Customer was read
 	 * @throws FailedToException
-	 * @throws FailedToUpdateException
 	 */
 
-	
+	@Override
 	public void updateCustomer(Customer customer) throws NotFoundException, FailedToException {
-		String query = "UPDATE customer "
-				+ "SET CUST_NAME = ?, PASSWORD = ?, IS_ACTIVE = ? "
-				+ "WHERE ID = ?";
-		Connection connection = pool.getConnection();
-		try {
-			PreparedStatement preparedStatement = connection.prepareStatement(query);
-			preparedStatement.setString(1, customer.getCustName());
-			preparedStatement.setString(2, customer.getPassword());
-			preparedStatement.setBoolean(3, customer.isActive());
-			preparedStatement.setString(4, customer.getId());
-			preparedStatement.executeUpdate();
-			if (preparedStatement.getUpdateCount() == 0) {
-				throw new NotFoundException(exceptions.EntryType.CUSTOMER, customer.getId());
+		PartialUpdate update = new PartialUpdate("customer");
+		for (Customer.Field field : customer.getChangedFields()) {
+			switch (field) {
+			case CUST_NAME:
+				update.set("CUST_NAME", customer.getCustName());
+				break;
+			case PASSWORD:
+				update.set("PASSWORD", customer.getPassword());
+				break;
+			case ACTIVE:
+				update.set("IS_ACTIVE", customer.isActive());
+				break;
+			}
+		}
+		if (update.isEmpty()) {
+			return;
+		}
+		try (Connection connection = pool.getConnection()) {
+			if (update.execute(connection, customer.getId(), customer.getVersion()) == 0) {
+				OptimisticLock.conflict(connection, EntryType.CUSTOMER, customer.getId(), customer.getVersion());
 			}
+			if (customer.getVersion() != Customer.ANY_VERSION) {
+				customer.setVersion(customer.getVersion() + 1);
+			}
+			customer.clearChangedFields();
 		} catch (SQLException e) {
 			e.printStackTrace();
 			throw new FailedToException(EntryType.CUSTOMER, ActionType.UPDATE, customer.getId(), e);
 		} finally {
-			pool.returnConnection(connection);
+			invalidateCached(customer.getId());
 		}
 	}
 
 	/**
-	 * This is the auxiliary method that helps to avoid code duplication. The
-	 * method creates the Customer object from the ResultSet received from the
-	 * database. Before using the method you should check if the resultset is
-	 * not null.
+	 * The method gets the Customer object from the database record by Customer
+	 * ID or name. The coupons of the Customer are read on the first access to
+	 * its set of coupons.
 	 * 
-	 * @param rs
-	 *            ResultSet received from the database that includes one
-	 *            Customer record
-	 * @return Customer Customer object
-	 * @throws SQLException
-	 * @throws FailedToGetListOfCouponsException 
+	 * @param parameter
+	 *            What the method will use for searching the database record (ID
+	 *            or
+	 * @param value
+	 *            The Customer id
+	 * @throws NotFoundException
+	 * @throws FailedToException
 	 */
 
-	private Customer parseDBCustomer(ResultSet rs) throws SQLException, FailedToGetListOfCouponsException {
-		Customer customer = new Customer();
-		String id = rs.getString("ID");
-		String custName = rs.getString("CUST_NAME");
-		String password = rs.getString("PASSWORD");
-		Set<Coupon> couponsOfCustomer = getCoupons(id);
-		boolean isActive = rs.getBoolean("IS_ACTIVE");
-		customer = new Customer(id, custName, password, couponsOfCustomer, isActive);
-		return customer;
+	@Override
+	public Customer getCustomerByParameter(ParameterType parameter, String value) throws NotFoundException, FailedToException {
+		return getCustomerByParameter(parameter, value, FetchPlan.LAZY);
 	}
 
 	/**
@@ -163,37 +191,101 @@ public class CustomerDBDAO implements CustomerDAO {
 	 *            or
 	 * @param value
 	 *            The Customer id
+	 * @param fetchPlan
+	 *            EAGER to read the coupons of the Customer on the same
+	 *            connection, LAZY to read them on the first access
 	 * @throws NotFoundException
 	 * @throws FailedToException
 	 */
 
 	@Override
-	public Customer getCustomerByParameter(ParameterType parameter, String value) throws NotFoundException, FailedToException {
-		String query = "SELECT * FROM customer WHERE "  + parameter + " = ?";
-		Connection connection = pool.getConnection();
+	public Customer getCustomerByParameter(ParameterType parameter, String value, FetchPlan fetchPlan)
+			throws NotFoundException, FailedToException {
+		if (CUSTOMER_CACHE == null) {
+			return readCustomer(parameter, value, fetchPlan);
+		}
+		Customer cached = parameter == ParameterType.ID ? CUSTOMER_CACHE.getById(value) : CUSTOMER_CACHE.getByName(value);
+		if (cached == null) {
+			long generation = CUSTOMER_CACHE.getGeneration();
+			Customer customer = readCustomer(parameter, value, fetchPlan);
+			CUSTOMER_CACHE.put(copy(customer, null), generation);
+			return customer;
+		}
+		if (fetchPlan == FetchPlan.LAZY) {
+			return copy(cached, new LazyCouponSet(() -> getCoupons(cached.getId())));
+		}
+		try (Connection connection = pool.getConnection()) {
+			return copy(cached, getCoupons(connection, cached.getId()));
+		} catch (SQLException e) {
+			e.printStackTrace();
+			throw new FailedToException(EntryType.CUSTOMER, ActionType.GET, value, e);
+		}
+	}
+
+	private Customer readCustomer(ParameterType parameter, String value, FetchPlan fetchPlan)
+			throws NotFoundException, FailedToException {
+		String query = Queries.customerByParameter(parameter);
 		Customer customer = null;
-		try {
+		try (Connection connection = pool.getConnection()) {
 			PreparedStatement preparedStatement = connection.prepareStatement(query);
 			preparedStatement.setString(1, value);
 			ResultSet rs = preparedStatement.executeQuery();
 			if (!rs.next()) {
 				throw new NotFoundException(EntryType.CUSTOMER, value);
 			}
-			customer = parseDBCustomer(rs);
+			CustomerRowMapper mapper = CustomerRowMapper.of(rs);
+			String id = mapper.id(rs);
+			if (fetchPlan == FetchPlan.EAGER) {
+				customer = mapper.mapRow(rs, getCoupons(connection, id));
+			} else {
+				customer = mapper.mapRow(rs, new LazyCouponSet(() -> getCoupons(id)));
+			}
 
-		} catch (SQLException | FailedToGetListOfCouponsException e) {
+		} catch (SQLException e) {
 			e.printStackTrace();
 			throw new FailedToException(EntryType.CUSTOMER, ActionType.GET, value, e);
-		} finally {
-			pool.returnConnection(connection);
 		}
 
 		return customer;
 
 	}
 
+	private static Customer copy(Customer customer, Set<Coupon> coupons) {
+		Customer copy = new Customer(customer.getId(), customer.getCustName(), customer.getPassword(), coupons,
+				customer.isActive());
+		copy.setVersion(customer.getVersion());
+		copy.clearChangedFields();
+		return copy;
+	}
+
+	/**
+	 * The method removes the Customer from the identity cache.
+	 * 
+	 * @param id
+	 *            The Customer's id
+	 */
+
+	static void invalidateCached(String id) {
+		if (CUSTOMER_CACHE != null) {
+			CUSTOMER_CACHE.invalidate(id);
+		}
+	}
+
+	/**
+	 * The method gets the hits and the misses of the identity cache of the
+	 * lookups by ID and by name.
+	 * 
+	 * @return CacheStats or null if identityCache is off
+	 */
+
+	public static CacheStats getCustomerCacheStats() {
+		return CUSTOMER_CACHE == null ? null : CUSTOMER_CACHE.getStats();
+	}
+
 	/**
-	 * The method gets the list of all active customers from the database.
+	 * The method gets the list of all active customers from the database. The
+	 * customers and the coupons of all of them are read by two queries on the
+	 * same connection instead of a query per customer.
 	 * 
 	 * @return ArrayList of Customers.
 	 * @throws DBDAOException 
@@ -201,26 +293,109 @@ public class CustomerDBDAO implements CustomerDAO {
 
 	@Override
 	public List<Customer> getAllCustomers() throws DBDAOException {
-		String query = "SELECT * FROM customer WHERE IS_ACTIVE = TRUE";
-		Connection connection = pool.getConnection();
+		String query = Queries.ALL_CUSTOMERS;
+		String couponsQuery = Queries.ALL_CUSTOMERS_COUPONS;
 		Customer customer = null;
 		List<Customer> activeCustomers = new ArrayList<Customer>();
-		try {
+		Map<String, Set<Coupon>> couponsByCustomer = new HashMap<String, Set<Coupon>>();
+		try (Connection connection = pool.getReadConnection()) {
 			PreparedStatement preparedStatement = connection.prepareStatement(query);
 			ResultSet rs = preparedStatement.executeQuery();
+			CustomerRowMapper mapper = CustomerRowMapper.of(rs);
 			while (rs.next()) {
-				customer = parseDBCustomer(rs);
+				Set<Coupon> couponsOfCustomer = new HashSet<Coupon>();
+				customer = mapper.mapRow(rs, couponsOfCustomer);
+				couponsByCustomer.put(customer.getId(), couponsOfCustomer);
 				activeCustomers.add(customer);
 			}
+			PreparedStatement preparedStatement01 = connection.prepareStatement(couponsQuery);
+			ResultSet rs01 = preparedStatement01.executeQuery();
+			addCoupons(rs01, couponsByCustomer);
 		} catch (SQLException e) {
 			e.printStackTrace();
 			throw new DBDAOException ("Failed to get list of customers", e);
-		} finally {
-			pool.returnConnection(connection);
 		}
 		return activeCustomers;
 	}
 
+	/**
+	 * The method gets one page of the active customers ordered by ID. The page
+	 * is read by the condition on the ID of the last customer of the previous
+	 * page and LIMIT, so it costs the same for any page. The coupons of the
+	 * customers of the page are read by one more query.
+	 * 
+	 * @param pageSize
+	 *            The number of customers in the page
+	 * @param pageToken
+	 *            The token of the previous page or null for the first page
+	 * @return Page of Customers
+	 * @throws DBDAOException 
+	 */
+
+	@Override
+	public Page<Customer> getAllCustomers(int pageSize, String pageToken) throws DBDAOException {
+		PageToken.checkPageSize(pageSize);
+		String query = Queries.customersPage(pageToken != null);
+		List<Customer> activeCustomers = new ArrayList<Customer>();
+		Map<String, Set<Coupon>> couponsByCustomer = new HashMap<String, Set<Coupon>>();
+		try (Connection connection = pool.getReadConnection()) {
+			PreparedStatement preparedStatement = connection.prepareStatement(query);
+			int index = 1;
+			if (pageToken != null) {
+				preparedStatement.setString(index++, PageToken.decode(pageToken, 1)[0]);
+			}
+			preparedStatement.setInt(index, pageSize + 1);
+			ResultSet rs = preparedStatement.executeQuery();
+			CustomerRowMapper mapper = CustomerRowMapper.of(rs);
+			while (rs.next()) {
+				Set<Coupon> couponsOfCustomer = new HashSet<Coupon>();
+				Customer customer = mapper.mapRow(rs, couponsOfCustomer);
+				couponsByCustomer.put(customer.getId(), couponsOfCustomer);
+				activeCustomers.add(customer);
+			}
+			if (activeCustomers.size() > pageSize) {
+				// the extra row only shows that there is the next page
+				couponsByCustomer.remove(activeCustomers.get(pageSize).getId());
+			}
+			if (!couponsByCustomer.isEmpty()) {
+				String couponsQuery = Queries.customersCoupons(couponsByCustomer.size());
+				PreparedStatement preparedStatement01 = connection.prepareStatement(couponsQuery);
+				index = 1;
+				for (String id : couponsByCustomer.keySet()) {
+					preparedStatement01.setString(index++, id);
+				}
+				addCoupons(preparedStatement01.executeQuery(), couponsByCustomer);
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+			throw new DBDAOException ("Failed to get list of customers", e);
+		}
+		return PageToken.toPage(activeCustomers, pageSize, customer -> new String[] { customer.getId() });
+	}
+
+	/**
+	 * The method adds the coupons from the ResultSet to the sets of coupons of
+	 * their customers.
+	 * 
+	 * @param rs
+	 *            ResultSet of coupons with CUST_ID column
+	 * @param couponsByCustomer
+	 *            The sets of coupons by Customer id
+	 * @throws SQLException
+	 */
+
+	private static void addCoupons(ResultSet rs, Map<String, Set<Coupon>> couponsByCustomer) throws SQLException {
+		CouponRowMapper mapper = CouponRowMapper.of(rs);
+		int custId = rs.findColumn("CUST_ID");
+		while (rs.next()) {
+			Set<Coupon> couponsOfCustomer = couponsByCustomer.get(rs.getString(custId));
+			// the customer could be added after the first query
+			if (couponsOfCustomer != null) {
+				couponsOfCustomer.add(mapper.mapRow(rs));
+			}
+		}
+	}
+
 	/**
 	 * The method gets the set of coupons (active and inactive) purchased by
 	 * Customer (by Customer's id).
@@ -233,30 +408,37 @@ public class CustomerDBDAO implements CustomerDAO {
 
 	@Override
 	public Set<Coupon> getCoupons(String id) throws FailedToGetListOfCouponsException {
-		Coupon coupon = new Coupon ();
-		Set<Coupon> couponsOfCustomer = new HashSet<Coupon>();
-		String query = "SELECT * FROM customer_coupon cc " 
-						+ "INNER JOIN coupon cp ON cc.COUPON_ID = cp.ID "
-						+ "WHERE cc.CUST_ID = ? AND cc.IS_ACTIVE=true";
-		Connection connection = pool.getConnection();
-		PreparedStatement preparedStatement;
-		try {
-			preparedStatement = connection.prepareStatement(query);
-			preparedStatement.setString(1, id);
-			ResultSet rs = preparedStatement.executeQuery();
-			while (rs.next()) {
-				coupon = CouponDBDAO.parseDBCoupon (rs);
-				couponsOfCustomer.add(coupon);
-			}
-
+		try (Connection connection = pool.getReadConnection()) {
+			return getCoupons(connection, id);
 		} catch (SQLException e) {
 			e.printStackTrace();
 			throw new FailedToGetListOfCouponsException (e);
-		} finally {
-			pool.returnConnection(connection);
 		}
-		return couponsOfCustomer;
+	}
 
+	/**
+	 * The method gets the set of coupons purchased by Customer using the
+	 * connection that the caller already holds.
+	 * 
+	 * @param connection
+	 *            The connection borrowed by the caller
+	 * @param id
+	 *            The Customer id
+	 * @return Set of Coupons
+	 * @throws SQLException
+	 */
+
+	private Set<Coupon> getCoupons(Connection connection, String id) throws SQLException {
+		Set<Coupon> couponsOfCustomer = new HashSet<Coupon>();
+		String query = Queries.CUSTOMER_COUPONS;
+		PreparedStatement preparedStatement = connection.prepareStatement(query);
+		preparedStatement.setString(1, id);
+		ResultSet rs = preparedStatement.executeQuery();
+		CouponRowMapper mapper = CouponRowMapper.of(rs);
+		while (rs.next()) {
+			couponsOfCustomer.add(mapper.mapRow(rs));
+		}
+		return couponsOfCustomer;
 	}
 
 	/**
@@ -273,10 +455,14 @@ public class CustomerDBDAO implements CustomerDAO {
 
 	@Override
 	public boolean login(String custName, String password) {
-		String query = "SELECT * FROM customer "
-				+ "WHERE CUST_NAME = ? AND PASSWORD = ?";
-		Connection connection = pool.getConnection();
-		try {
+		if (CUSTOMER_CACHE != null) {
+			Customer cached = CUSTOMER_CACHE.getByName(custName);
+			if (cached != null && cached.getPassword().equals(password)) {
+				return true;
+			}
+		}
+		String query = Queries.CUSTOMER_LOGIN;
+		try (Connection connection = pool.getConnection()) {
 			PreparedStatement preparedStatement = connection.prepareStatement(query);
 			preparedStatement.setString(1, custName);
 			preparedStatement.setString(2, password);
@@ -285,8 +471,6 @@ public class CustomerDBDAO implements CustomerDAO {
 		} catch (SQLException e) {
 			e.printStackTrace();
 			return false;
-		} finally {
-			pool.returnConnection(connection);
 		}
 	}
 
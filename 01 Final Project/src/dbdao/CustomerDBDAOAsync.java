@@ -0,0 +1,110 @@
+/**
+ * CustomerDBDAOAsync runs the methods of CustomerDAO on AsyncDAOExecutor, so the
+ * caller can start several independent database calls and wait for all of
+ * them at once.
+ * @author Alexandra Shapira
+ */
+
+package dbdao;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+import dao.CustomerDAO;
+import dao.CustomerDAOAsync;
+import dao.Page;
+import javaBeans.Coupon;
+import javaBeans.Customer;
+
+public class CustomerDBDAOAsync implements CustomerDAOAsync {
+
+	private final CustomerDAO customerDAO;
+
+	/**
+	 * Class constructor that wraps a new CustomerDBDAO.
+	 */
+
+	public CustomerDBDAOAsync() {
+		this(new CustomerDBDAO());
+	}
+
+	/**
+	 * Class constructor.
+	 * 
+	 * @param customerDAO
+	 *            The blocking DAO whose methods are run asynchronously
+	 */
+
+	public CustomerDBDAOAsync(CustomerDAO customerDAO) {
+		this.customerDAO = customerDAO;
+	}
+
+	private static <T> CompletableFuture<T> supply(Callable<T> call) {
+		return AsyncDAOExecutor.getInstance().supply(call);
+	}
+
+	@Override
+	public CompletableFuture<Void> createCustomer(Customer customer) {
+		return supply(() -> {
+			customerDAO.createCustomer(customer);
+			return null;
+		});
+	}
+
+	@Override
+	public CompletableFuture<Void> removeCustomer(Customer customer) {
+		return supply(() -> {
+			customerDAO.removeCustomer(customer);
+			return null;
+		});
+	}
+
+	@Override
+	public CompletableFuture<Void> removeCustomer(Customer customer, RemovalListener listener) {
+		return supply(() -> {
+			customerDAO.removeCustomer(customer, listener);
+			return null;
+		});
+	}
+
+	@Override
+	public CompletableFuture<Void> updateCustomer(Customer customer) {
+		return supply(() -> {
+			customerDAO.updateCustomer(customer);
+			return null;
+		});
+	}
+
+	@Override
+	public CompletableFuture<Customer> getCustomerByParameter(ParameterType parameter, String value) {
+		return supply(() -> customerDAO.getCustomerByParameter(parameter, value));
+	}
+
+	@Override
+	public CompletableFuture<Customer> getCustomerByParameter(ParameterType parameter, String value, FetchPlan fetchPlan) {
+		return supply(() -> customerDAO.getCustomerByParameter(parameter, value, fetchPlan));
+	}
+
+	@Override
+	public CompletableFuture<List<Customer>> getAllCustomers() {
+		return supply(() -> customerDAO.getAllCustomers());
+	}
+
+	@Override
+	public CompletableFuture<Page<Customer>> getAllCustomers(int pageSize, String pageToken) {
+		return supply(() -> customerDAO.getAllCustomers(pageSize, pageToken));
+	}
+
+	@Override
+	public CompletableFuture<Set<Coupon>> getCoupons(String id) {
+		return supply(() -> customerDAO.getCoupons(id));
+	}
+
+	@Override
+	public CompletableFuture<Boolean> login(String custName, String password) {
+		return supply(() -> customerDAO.login(custName, password));
+	}
+
+}
@@ -0,0 +1,81 @@
+/**
+ * CustomerRowMapper creates Customer objects from the rows of a ResultSet. The
+ * indices of the columns are found once, when the mapper is created for the
+ * ResultSet. The queries should select COLUMNS from the customer table.
+ * @author Alexandra Shapira
+ */
+
+package dbdao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Set;
+
+import javaBeans.Coupon;
+import javaBeans.Customer;
+
+final class CustomerRowMapper {
+
+	static final String COLUMNS = "ID, CUST_NAME, PASSWORD, IS_ACTIVE, VERSION";
+
+	private final int id;
+	private final int custName;
+	private final int password;
+	private final int isActive;
+	private final int version;
+
+	private CustomerRowMapper(ResultSet rs) throws SQLException {
+		id = rs.findColumn("ID");
+		custName = rs.findColumn("CUST_NAME");
+		password = rs.findColumn("PASSWORD");
+		isActive = rs.findColumn("IS_ACTIVE");
+		version = rs.findColumn("VERSION");
+	}
+
+	/**
+	 * The method creates the mapper for the ResultSet.
+	 * 
+	 * @param rs
+	 *            ResultSet with the customer columns
+	 * @return CustomerRowMapper
+	 * @throws SQLException
+	 *             if the ResultSet has no customer columns
+	 */
+
+	static CustomerRowMapper of(ResultSet rs) throws SQLException {
+		return new CustomerRowMapper(rs);
+	}
+
+	/**
+	 * The method gets the id of the Customer in the current row.
+	 * 
+	 * @param rs
+	 *            The ResultSet the mapper was created for
+	 * @return Customer's id
+	 * @throws SQLException
+	 */
+
+	String id(ResultSet rs) throws SQLException {
+		return rs.getString(id);
+	}
+
+	/**
+	 * The method creates the Customer object from the current row.
+	 * 
+	 * @param rs
+	 *            The ResultSet the mapper was created for
+	 * @param couponsOfCustomer
+	 *            The set of coupons purchased by the Customer
+	 * @return Customer Customer object
+	 * @throws SQLException
+	 */
+
+	Customer mapRow(ResultSet rs, Set<Coupon> couponsOfCustomer) throws SQLException {
+		Customer customer = new Customer(rs.getString(id), rs.getString(custName), rs.getString(password),
+				couponsOfCustomer, rs.getBoolean(isActive));
+		customer.setVersion(rs.getInt(version));
+		customer.clearChangedFields();
+		return customer;
+	}
+
+}
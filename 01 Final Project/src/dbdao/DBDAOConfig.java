@@ -0,0 +1,187 @@
+/**
+ * DBDAOConfig keeps the settings of the DBDAO classes that are read from
+ * db.properties once, when the class is loaded.
+ * @author Alexandra Shapira
+ */
+
+package dbdao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+final class DBDAOConfig {
+
+	private static final Properties PROPS = load();
+
+	private DBDAOConfig() {
+	}
+
+	private static Properties load() {
+		Properties props = new Properties();
+		try (InputStream is = DBDAOConfig.class.getClassLoader().getResourceAsStream("db.properties")) {
+			if (is != null) {
+				props.load(is);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return props;
+	}
+
+	/**
+	 * The method gets the number of rows that are sent to the database in one
+	 * JDBC batch.
+	 * 
+	 * @return batch size, 1000 by default
+	 */
+
+	static int getBatchSize() {
+		return Math.max(1, Integer.parseInt(PROPS.getProperty("batchSize", "1000")));
+	}
+
+	/**
+	 * The method gets the fetch size of the streaming queries. MySQL streams
+	 * the rows one by one only with Integer.MIN_VALUE, a positive value works
+	 * with useCursorFetch=true in the connection URL.
+	 * 
+	 * @return fetch size, Integer.MIN_VALUE by default
+	 */
+
+	static int getStreamFetchSize() {
+		return Integer.parseInt(PROPS.getProperty("streamFetchSize", String.valueOf(Integer.MIN_VALUE)));
+	}
+
+	/**
+	 * The method gets the number of the asynchronous DAO calls that may wait
+	 * for a free thread of AsyncDAOExecutor.
+	 * 
+	 * @return queue size, 1000 by default
+	 */
+
+	static int getAsyncQueueSize() {
+		return Math.max(1, Integer.parseInt(PROPS.getProperty("asyncQueueSize", "1000")));
+	}
+
+	/**
+	 * The method gets the number of rows that the cascading removal of
+	 * Company or Customer deactivates in one transaction.
+	 * 
+	 * @return chunk size, 500 by default
+	 */
+
+	static int getRemovalChunkSize() {
+		return Math.max(1, Integer.parseInt(PROPS.getProperty("removalChunkSize", "500")));
+	}
+
+	/**
+	 * The method checks if the purchases of coupons are committed in groups by
+	 * PurchaseJournal.
+	 * 
+	 * @return purchaseJournal, false by default
+	 */
+
+	static boolean isPurchaseJournalEnabled() {
+		return Boolean.parseBoolean(PROPS.getProperty("purchaseJournal", "false"));
+	}
+
+	/**
+	 * The method gets the maximal number of purchases that PurchaseJournal
+	 * commits in one transaction.
+	 * 
+	 * @return batch size, 100 by default
+	 */
+
+	static int getJournalBatchSize() {
+		return Math.max(1, Integer.parseInt(PROPS.getProperty("journalBatchSize", "100")));
+	}
+
+	/**
+	 * The method gets the time that PurchaseJournal waits for more purchases
+	 * after the first purchase of the group.
+	 * 
+	 * @return time in milliseconds, 5 by default
+	 */
+
+	static long getJournalFlushMillis() {
+		return Math.max(0, Long.parseLong(PROPS.getProperty("journalFlushMillis", "5")));
+	}
+
+	/**
+	 * The method gets the number of purchases that may wait for PurchaseJournal.
+	 * 
+	 * @return queue size, 10000 by default
+	 */
+
+	static int getJournalQueueSize() {
+		return Math.max(1, Integer.parseInt(PROPS.getProperty("journalQueueSize", "10000")));
+	}
+
+	/**
+	 * The method checks if CouponDBDAO.getCoupon reads the coupons through the
+	 * cache.
+	 * 
+	 * @return couponCache, false by default
+	 */
+
+	static boolean isCouponCacheEnabled() {
+		return Boolean.parseBoolean(PROPS.getProperty("couponCache", "false"));
+	}
+
+	/**
+	 * The method gets the maximal number of coupons in the cache.
+	 * 
+	 * @return cache size, 10000 by default
+	 */
+
+	static int getCouponCacheSize() {
+		return Math.max(1, Integer.parseInt(PROPS.getProperty("couponCacheSize", "10000")));
+	}
+
+	/**
+	 * The method gets the time after which the cached coupon is read from the
+	 * database again, it limits how long the changes made by other
+	 * applications are not seen.
+	 * 
+	 * @return time in milliseconds, 30000 by default
+	 */
+
+	static long getCouponCacheTtlMillis() {
+		return Math.max(0, Long.parseLong(PROPS.getProperty("couponCacheTtlMillis", "30000")));
+	}
+
+	/**
+	 * The method checks if the companies and the customers are cached by ID
+	 * and by name.
+	 * 
+	 * @return identityCache, false by default
+	 */
+
+	static boolean isIdentityCacheEnabled() {
+		return Boolean.parseBoolean(PROPS.getProperty("identityCache", "false"));
+	}
+
+	/**
+	 * The method gets the maximal number of companies and of customers in the
+	 * identity cache.
+	 * 
+	 * @return cache size, 1000 by default
+	 */
+
+	static int getIdentityCacheSize() {
+		return Math.max(1, Integer.parseInt(PROPS.getProperty("identityCacheSize", "1000")));
+	}
+
+	/**
+	 * The method gets the time after which the cached company or customer is
+	 * read from the database again, it also limits how long the login accepts
+	 * a password that was changed by another application.
+	 * 
+	 * @return time in milliseconds, 60000 by default
+	 */
+
+	static long getIdentityCacheTtlMillis() {
+		return Math.max(0, Long.parseLong(PROPS.getProperty("identityCacheTtlMillis", "60000")));
+	}
+
+}
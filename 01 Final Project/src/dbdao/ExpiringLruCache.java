@@ -0,0 +1,230 @@
+/**
+ * ExpiringLruCache is the cache of the DBDAO classes with the limited number
+ * of entries and the limited time to live. When the cache is full the least
+ * recently used entry is evicted, the expired entries are removed when they
+ * are read. The loaded value is put only if its key was not invalidated while
+ * it was read from the database, so the cache never keeps the record that was
+ * changed during the reading, and the invalidation of one key does not
+ * discard the loads of the others.
+ * @author Alexandra Shapira
+ */
+
+package dbdao;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+final class ExpiringLruCache<K, V> {
+
+	private final int maxSize;
+	private final long ttlNanos;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final LinkedHashMap<K, CachedValue<V>> entries;
+	private final LinkedHashMap<K, Long> invalidations;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private long generation;
+	private long oldestLoad;
+
+	private static final class CachedValue<V> {
+
+		private final V value;
+		private final long expiresAt;
+
+		private CachedValue(V value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	/**
+	 * Class constructor.
+	 * 
+	 * @param maxSize
+	 *            The maximal number of entries
+	 * @param ttlMillis
+	 *            The time to live of the entry in milliseconds
+	 */
+
+	ExpiringLruCache(int maxSize, long ttlMillis) {
+		this.maxSize = maxSize;
+		this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+		// the access order makes the eldest entry the least recently used one
+		this.entries = new LinkedHashMap<K, CachedValue<V>>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, CachedValue<V>> eldest) {
+				return size() > ExpiringLruCache.this.maxSize;
+			}
+		};
+		// the insertion order keeps the oldest invalidation first; when it is
+		// forgotten, the loads that started before it are discarded
+		this.invalidations = new LinkedHashMap<K, Long>() {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, Long> eldest) {
+				if (size() > ExpiringLruCache.this.maxSize) {
+					oldestLoad = eldest.getValue();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * The method gets the value from the cache and counts the hit or the miss.
+	 * 
+	 * @param key
+	 *            The key
+	 * @return the value or null if there is no value or it is expired
+	 */
+
+	V get(K key) {
+		lock.lock();
+		try {
+			CachedValue<V> entry = entries.get(key);
+			if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+				hits.incrementAndGet();
+				return entry.value;
+			}
+			if (entry != null) {
+				entries.remove(key);
+			}
+		} finally {
+			lock.unlock();
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * The method gets the generation of the cache. It should be taken before
+	 * the value is read from the database and given to put.
+	 * 
+	 * @return the number of invalidations so far
+	 */
+
+	long getGeneration() {
+		lock.lock();
+		try {
+			return generation;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * The method puts the value that was read from the database if its key was
+	 * not invalidated since the generation was taken.
+	 * 
+	 * @param key
+	 *            The key
+	 * @param value
+	 *            The value
+	 * @param readGeneration
+	 *            The generation before the value was read
+	 */
+
+	void put(K key, V value, long readGeneration) {
+		lock.lock();
+		try {
+			Long invalidatedAt = invalidations.get(key);
+			if (readGeneration >= oldestLoad && (invalidatedAt == null || invalidatedAt <= readGeneration)) {
+				entries.put(key, new CachedValue<V>(value, System.nanoTime() + ttlNanos));
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * The method removes the value from the cache.
+	 * 
+	 * @param key
+	 *            The key
+	 */
+
+	void invalidate(K key) {
+		lock.lock();
+		try {
+			generation++;
+			entries.remove(key);
+			markInvalidated(key);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * The method removes the values of the keys from the cache.
+	 * 
+	 * @param keys
+	 *            The keys
+	 */
+
+	void invalidate(Iterable<? extends K> keys) {
+		lock.lock();
+		try {
+			generation++;
+			for (K key : keys) {
+				entries.remove(key);
+				markInvalidated(key);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * The method removes all the values from the cache.
+	 */
+
+	void invalidateAll() {
+		lock.lock();
+		try {
+			generation++;
+			entries.clear();
+			invalidations.clear();
+			oldestLoad = generation;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * The method remembers the generation of the invalidation of the key. The
+	 * key is moved to the end, so the invalidations stay in their order.
+	 * 
+	 * @param key
+	 *            The key
+	 */
+
+	private void markInvalidated(K key) {
+		invalidations.remove(key);
+		invalidations.put(key, generation);
+	}
+
+	/**
+	 * The method gets the statistics of the cache.
+	 * 
+	 * @return CacheStats
+	 */
+
+	CacheStats getStats() {
+		lock.lock();
+		try {
+			return new CacheStats(hits.get(), misses.get(), entries.size());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+}
@@ -0,0 +1,17 @@
+/**
+ * The enum class that defines when the coupons of Company or Customer are read
+ * from the database.
+ * 
+ * @author Alexandra Shapira
+ */
+
+package dbdao;
+
+public enum FetchPlan {
+
+	/** The coupons are read on the first access to the set. */
+	LAZY,
+	/** The coupons are read together with the Company or Customer record. */
+	EAGER;
+
+}
@@ -0,0 +1,123 @@
+/**
+ * IdentityCache keeps the records of companies or customers that can be found
+ * both by ID and by name. The records are kept by ID and a second index maps
+ * the names to the IDs. The name index is never invalidated: the record that
+ * is found through it is used only if it still has the name that was looked
+ * up, so it is enough to invalidate the record by its ID when it is changed.
+ * @author Alexandra Shapira
+ */
+
+package dbdao;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+final class IdentityCache<T> {
+
+	private final ExpiringLruCache<String, T> byId;
+	private final ExpiringLruCache<String, String> idByName;
+	private final Function<T, String> idOf;
+	private final Function<T, String> nameOf;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Class constructor.
+	 * 
+	 * @param maxSize
+	 *            The maximal number of records
+	 * @param ttlMillis
+	 *            The time to live of the record in milliseconds
+	 * @param idOf
+	 *            The function that gets the ID of the record
+	 * @param nameOf
+	 *            The function that gets the name of the record
+	 */
+
+	IdentityCache(int maxSize, long ttlMillis, Function<T, String> idOf, Function<T, String> nameOf) {
+		this.byId = new ExpiringLruCache<String, T>(maxSize, ttlMillis);
+		this.idByName = new ExpiringLruCache<String, String>(maxSize, ttlMillis);
+		this.idOf = idOf;
+		this.nameOf = nameOf;
+	}
+
+	/**
+	 * The method gets the record by its ID.
+	 * 
+	 * @param id
+	 *            The ID
+	 * @return the record or null if it isn't cached
+	 */
+
+	T getById(String id) {
+		return count(byId.get(id));
+	}
+
+	/**
+	 * The method gets the record by its name.
+	 * 
+	 * @param name
+	 *            The name
+	 * @return the record or null if it isn't cached
+	 */
+
+	T getByName(String name) {
+		String id = idByName.get(name);
+		T record = id == null ? null : byId.get(id);
+		return count(record != null && name.equals(nameOf.apply(record)) ? record : null);
+	}
+
+	private T count(T record) {
+		(record == null ? misses : hits).incrementAndGet();
+		return record;
+	}
+
+	/**
+	 * The method gets the generation of the cache. It should be taken before
+	 * the record is read from the database and given to put.
+	 * 
+	 * @return the number of invalidations so far
+	 */
+
+	long getGeneration() {
+		return byId.getGeneration();
+	}
+
+	/**
+	 * The method puts the record that was read from the database if it wasn't
+	 * invalidated since the generation was taken.
+	 * 
+	 * @param record
+	 *            The record
+	 * @param readGeneration
+	 *            The generation before the record was read
+	 */
+
+	void put(T record, long readGeneration) {
+		String id = idOf.apply(record);
+		byId.put(id, record, readGeneration);
+		idByName.put(nameOf.apply(record), id, idByName.getGeneration());
+	}
+
+	/**
+	 * The method removes the record from the cache.
+	 * 
+	 * @param id
+	 *            The ID of the record
+	 */
+
+	void invalidate(String id) {
+		byId.invalidate(id);
+	}
+
+	/**
+	 * The method gets the statistics of the lookups by ID and by name.
+	 * 
+	 * @return CacheStats
+	 */
+
+	CacheStats getStats() {
+		return new CacheStats(hits.get(), misses.get(), byId.getStats().getSize());
+	}
+
+}
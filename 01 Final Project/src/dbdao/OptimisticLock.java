@@ -0,0 +1,60 @@
+/**
+ * OptimisticLock explains the version-checked UPDATE that changed nothing:
+ * either the record doesn't exist or it has another version than the object
+ * that was updated.
+ * @author Alexandra Shapira
+ */
+
+package dbdao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import exceptions.EntryType;
+import exceptions.NotFoundException;
+import exceptions.StaleVersionException;
+
+final class OptimisticLock {
+
+	private OptimisticLock() {
+	}
+
+	/**
+	 * The method throws the exception that describes why the UPDATE ... WHERE
+	 * ID = ? AND VERSION = ? of the record changed nothing.
+	 * 
+	 * @param connection
+	 *            The connection of the UPDATE
+	 * @param entryType
+	 *            The type of the record, its name is the name of the table
+	 * @param id
+	 *            The ID of the record
+	 * @param version
+	 *            The version that was expected by the UPDATE or a negative
+	 *            number if the version wasn't checked
+	 * @throws NotFoundException
+	 *             if there is no such record
+	 * @throws StaleVersionException
+	 *             if the record has another version
+	 * @throws SQLException
+	 */
+
+	static void conflict(Connection connection, EntryType entryType, String id, int version)
+			throws NotFoundException, StaleVersionException, SQLException {
+		if (version < 0) {
+			throw new NotFoundException(entryType, id);
+		}
+		String query = Queries.versionOf(entryType.name().toLowerCase());
+		PreparedStatement preparedStatement = connection.prepareStatement(query);
+		preparedStatement.setString(1, id);
+		try (ResultSet resultSet = preparedStatement.executeQuery()) {
+			if (!resultSet.next()) {
+				throw new NotFoundException(entryType, id);
+			}
+			throw new StaleVersionException(entryType, id, version, resultSet.getInt(1));
+		}
+	}
+
+}
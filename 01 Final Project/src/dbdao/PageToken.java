@@ -0,0 +1,152 @@
+/**
+ * PageToken encodes the key of the last record of the page into the opaque
+ * continuation token and decodes it back. The next page is read by the
+ * condition on this key (keyset pagination) instead of OFFSET, so every page
+ * costs the same however far it is from the first one.
+ * @author Alexandra Shapira
+ */
+
+package dbdao;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import dao.Page;
+
+final class PageToken {
+
+	private static final char SEPARATOR = '|';
+	private static final char ESCAPE = '\\';
+
+	private PageToken() {
+	}
+
+	/**
+	 * The method encodes the key values into the token. The separator and the
+	 * escape character inside the values (a title may contain them) are
+	 * escaped, so decode splits the token at the same places.
+	 * 
+	 * @param keys
+	 *            The key values of the last record
+	 * @return the token
+	 */
+
+	static String encode(String... keys) {
+		StringBuilder joined = new StringBuilder();
+		for (int i = 0; i < keys.length; i++) {
+			if (i > 0) {
+				joined.append(SEPARATOR);
+			}
+			for (char c : keys[i].toCharArray()) {
+				if (c == SEPARATOR || c == ESCAPE) {
+					joined.append(ESCAPE);
+				}
+				joined.append(c);
+			}
+		}
+		return Base64.getUrlEncoder().withoutPadding()
+				.encodeToString(joined.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * The method decodes the token into the key values.
+	 * 
+	 * @param token
+	 *            The token received from the previous page
+	 * @param count
+	 *            The number of the key values
+	 * @return the key values
+	 * @throws IllegalArgumentException
+	 *             if the token wasn't made by encode
+	 */
+
+	static String[] decode(String token, int count) {
+		try {
+			List<String> keys = split(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+			if (keys != null && keys.size() == count) {
+				return keys.toArray(new String[count]);
+			}
+		} catch (IllegalArgumentException e) {
+			// reported below
+		}
+		throw new IllegalArgumentException("Invalid page token: " + token);
+	}
+
+	/**
+	 * The method splits the decoded token at the separators that are not
+	 * escaped and removes the escaping.
+	 * 
+	 * @param joined
+	 *            The decoded token
+	 * @return the key values or null if the token ends inside an escape
+	 */
+
+	private static List<String> split(String joined) {
+		List<String> keys = new ArrayList<String>();
+		StringBuilder key = new StringBuilder();
+		for (int i = 0; i < joined.length(); i++) {
+			char c = joined.charAt(i);
+			if (c == ESCAPE) {
+				if (++i == joined.length()) {
+					return null;
+				}
+				key.append(joined.charAt(i));
+			} else if (c == SEPARATOR) {
+				keys.add(key.toString());
+				key.setLength(0);
+			} else {
+				key.append(c);
+			}
+		}
+		keys.add(key.toString());
+		return keys;
+	}
+
+	/**
+	 * The method checks the page size.
+	 * 
+	 * @param pageSize
+	 *            The number of records in the page
+	 * @throws IllegalArgumentException
+	 *             if the page size is not positive
+	 */
+
+	static void checkPageSize(int pageSize) {
+		if (pageSize < 1) {
+			throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+		}
+	}
+
+	/**
+	 * The method makes the page from the records that were read with LIMIT
+	 * pageSize + 1. The extra record only shows that there is the next page.
+	 * 
+	 * @param items
+	 *            The records read from the database
+	 * @param pageSize
+	 *            The number of records in the page
+	 * @param lastKeys
+	 *            The function that gives the keys of the last record
+	 * @return Page of records
+	 */
+
+	static <T> Page<T> toPage(List<T> items, int pageSize, KeyExtractor<T> lastKeys) {
+		if (items.size() <= pageSize) {
+			return new Page<T>(items, null);
+		}
+		items.remove(pageSize);
+		return new Page<T>(items, encode(lastKeys.keys(items.get(pageSize - 1))));
+	}
+
+	/**
+	 * The interface of the lambdas that give the key values of the record.
+	 */
+
+	@FunctionalInterface
+	interface KeyExtractor<T> {
+		String[] keys(T item);
+	}
+
+}
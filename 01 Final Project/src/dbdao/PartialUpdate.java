@@ -0,0 +1,87 @@
+/**
+ * PartialUpdate builds the UPDATE of one record that sets only the given
+ * columns, so the columns that weren't changed (for example the long MESSAGE
+ * and IMAGE of the coupon) are not sent to the database and not written to its
+ * logs. Every update increments the VERSION of the record.
+ * @author Alexandra Shapira
+ */
+
+package dbdao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+final class PartialUpdate {
+
+	private final StringBuilder query;
+	private final List<Object> values = new ArrayList<Object>();
+
+	/**
+	 * Class constructor.
+	 * 
+	 * @param table
+	 *            The table of the record
+	 */
+
+	PartialUpdate(String table) {
+		query = new StringBuilder("UPDATE ").append(table).append(" SET ");
+	}
+
+	/**
+	 * The method adds the column to the update.
+	 * 
+	 * @param column
+	 *            The name of the column
+	 * @param value
+	 *            The new value of the column
+	 * @return this PartialUpdate
+	 */
+
+	PartialUpdate set(String column, Object value) {
+		query.append(column).append(" = ?, ");
+		values.add(value);
+		return this;
+	}
+
+	/**
+	 * The method checks if any column was added.
+	 * 
+	 * @return true if there is nothing to update
+	 */
+
+	boolean isEmpty() {
+		return values.isEmpty();
+	}
+
+	/**
+	 * The method runs the update of the record.
+	 * 
+	 * @param connection
+	 *            The connection
+	 * @param id
+	 *            The ID of the record
+	 * @param version
+	 *            The version the record must have or a negative number if the
+	 *            version isn't checked
+	 * @return the number of updated records
+	 * @throws SQLException
+	 */
+
+	int execute(Connection connection, String id, int version) throws SQLException {
+		query.append("VERSION = VERSION + 1 WHERE ID = ?");
+		values.add(id);
+		if (version >= 0) {
+			query.append(" AND VERSION = ?");
+			values.add(version);
+		}
+		PreparedStatement preparedStatement = connection.prepareStatement(query.toString());
+		for (int i = 0; i < values.size(); i++) {
+			preparedStatement.setObject(i + 1, values.get(i));
+		}
+		return preparedStatement.executeUpdate();
+	}
+
+}
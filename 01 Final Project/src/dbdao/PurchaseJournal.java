@@ -0,0 +1,266 @@
+/**
+ * PurchaseJournal commits the purchases of coupons in groups. The purchases
+ * are put into a queue and one writer thread runs them in one transaction when
+ * journalBatchSize purchases were collected or journalFlushMillis passed since
+ * the first of them (db.properties). The steps of the purchases are sent in
+ * batches (CouponDBDAO.purchaseInBatch), so the group costs a few round trips,
+ * and the database commits once per group and not once per purchase. If a
+ * purchase of the batch fails, the group is run again purchase by purchase,
+ * each one under its own savepoint, so only the failed purchase is rolled
+ * back. The future of every purchase is completed only when its group was
+ * committed, so the caller decides if it waits for the durability or not.
+ * @author Alexandra Shapira
+ */
+
+package dbdao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import connection.ConnectionPoolSingleton;
+import exceptions.ActionType;
+import exceptions.EntryType;
+import exceptions.FailedToException;
+
+public final class PurchaseJournal {
+
+	private static volatile boolean started;
+
+	private final ConnectionPoolSingleton pool = ConnectionPoolSingleton.getInstance();
+	private final BlockingQueue<Record> queue;
+	private final int batchSize;
+	private final long flushNanos;
+	private final Thread writer;
+	private volatile boolean running = true;
+
+	/**
+	 * The purchase that waits for the commit.
+	 */
+
+	private static final class Record {
+
+		private final String couponId;
+		private final String custId;
+		private final CompletableFuture<PurchaseOutcome> committed = new CompletableFuture<PurchaseOutcome>();
+
+		private Record(String couponId, String custId) {
+			this.couponId = couponId;
+			this.custId = custId;
+		}
+	}
+
+	/**
+	 * The inner class PurchaseJournalHolder starts the writer thread on the
+	 * first purchase only.
+	 *
+	 */
+
+	private static class PurchaseJournalHolder {
+		private static final PurchaseJournal INSTANCE = new PurchaseJournal();
+	}
+
+	static PurchaseJournal getInstance() {
+		return PurchaseJournalHolder.INSTANCE;
+	}
+
+	/**
+	 * Class constructor.
+	 */
+
+	private PurchaseJournal() {
+		queue = new LinkedBlockingQueue<Record>(DBDAOConfig.getJournalQueueSize());
+		batchSize = DBDAOConfig.getJournalBatchSize();
+		flushNanos = TimeUnit.MILLISECONDS.toNanos(DBDAOConfig.getJournalFlushMillis());
+		writer = new Thread(this::writeRecords, "purchase-journal");
+		writer.setDaemon(true);
+		writer.start();
+		started = true;
+	}
+
+	/**
+	 * The method puts the purchase into the queue of the writer.
+	 *
+	 * @param couponId
+	 *            The ID of the Coupon
+	 * @param custId
+	 *            The ID of the Customer who purchases the Coupon
+	 * @return CompletableFuture of the PurchaseOutcome that is completed when
+	 *         the purchase is committed, it fails with FailedToException if
+	 *         the group failed or with RejectedExecutionException if the queue
+	 *         is full or the journal is stopped
+	 */
+
+	CompletableFuture<PurchaseOutcome> purchase(String couponId, String custId) {
+		Record record = new Record(couponId, custId);
+		if (!running) {
+			record.committed.completeExceptionally(new RejectedExecutionException("The purchase journal is stopped"));
+		} else if (!queue.offer(record)) {
+			record.committed.completeExceptionally(new RejectedExecutionException("The purchase journal is full"));
+		} else if (!running && queue.remove(record)) {
+			// the journal was stopped after the check and the writer may have
+			// already drained the queue, so the purchase would never be run
+			record.committed.completeExceptionally(new RejectedExecutionException("The purchase journal is stopped"));
+		}
+		return record.committed;
+	}
+
+	private void writeRecords() {
+		List<Record> group = new ArrayList<Record>(batchSize);
+		while (running || !queue.isEmpty()) {
+			try {
+				Record first = queue.poll(100, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				group.add(first);
+				long deadline = System.nanoTime() + flushNanos;
+				while (group.size() < batchSize) {
+					long left = deadline - System.nanoTime();
+					Record next = left > 0 ? queue.poll(left, TimeUnit.NANOSECONDS) : queue.poll();
+					if (next == null) {
+						break;
+					}
+					group.add(next);
+				}
+				purchase(group);
+			} catch (InterruptedException e) {
+				running = false;
+			} finally {
+				group.clear();
+			}
+		}
+		// the purchases that came after the last group
+		for (Record record = queue.poll(); record != null; record = queue.poll()) {
+			record.committed.completeExceptionally(new RejectedExecutionException("The purchase journal is stopped"));
+		}
+	}
+
+	/**
+	 * The method runs the group of purchases in one transaction and completes
+	 * their futures with their outcomes. A purchase that fails by itself (for
+	 * example a lock wait timeout on its Coupon) fails alone and the others
+	 * are committed. If the connection or the commit fails, all the purchases
+	 * of the group fail.
+	 *
+	 * @param group
+	 *            The purchases
+	 */
+
+	private void purchase(List<Record> group) {
+		List<String> couponIds = new ArrayList<String>(group.size());
+		List<String> custIds = new ArrayList<String>(group.size());
+		for (Record record : group) {
+			couponIds.add(record.couponId);
+			custIds.add(record.custId);
+		}
+		SQLException[] failures = new SQLException[group.size()];
+		PurchaseOutcome[] outcomes;
+		try (Connection connection = pool.getConnection()) {
+			connection.setAutoCommit(false);
+			try {
+				Savepoint groupStart = connection.setSavepoint();
+				try {
+					outcomes = CouponDBDAO.purchaseInBatch(connection, couponIds, custIds);
+				} catch (SQLException e) {
+					// one of the purchases failed, it is found by the purchases one by one
+					outcomes = null;
+				}
+				if (outcomes == null) {
+					connection.rollback(groupStart);
+					outcomes = purchaseOneByOne(connection, group, failures);
+				}
+				connection.commit();
+			} catch (SQLException | RuntimeException e) {
+				connection.rollback();
+				throw e;
+			}
+		} catch (SQLException | RuntimeException e) {
+			e.printStackTrace();
+			for (Record record : group) {
+				record.committed.completeExceptionally(
+						new FailedToException(EntryType.COUPON, ActionType.JOIN, record.couponId, e));
+			}
+			return;
+		} finally {
+			// the amounts have changed
+			CouponDBDAO.invalidateCachedCoupons(new HashSet<String>(couponIds));
+		}
+		for (int i = 0; i < group.size(); i++) {
+			Record record = group.get(i);
+			if (failures[i] != null) {
+				record.committed.completeExceptionally(
+						new FailedToException(EntryType.COUPON, ActionType.JOIN, record.couponId, failures[i]));
+			} else {
+				record.committed.complete(outcomes[i]);
+			}
+		}
+	}
+
+	/**
+	 * The method runs the purchases of the group one by one, each one under its
+	 * own savepoint. The purchase that is sold out, already owned or failed is
+	 * rolled back to its savepoint and the next purchases go on.
+	 *
+	 * @param connection
+	 *            The connection with the open transaction
+	 * @param group
+	 *            The purchases
+	 * @param failures
+	 *            The array that gets the exception of every failed purchase
+	 * @return PurchaseOutcome of every purchase, null for the failed ones
+	 * @throws SQLException
+	 *             if a savepoint can't be rolled back, so the transaction is
+	 *             lost
+	 */
+
+	private static PurchaseOutcome[] purchaseOneByOne(Connection connection, List<Record> group,
+			SQLException[] failures) throws SQLException {
+		PurchaseOutcome[] outcomes = new PurchaseOutcome[group.size()];
+		for (int i = 0; i < group.size(); i++) {
+			Record record = group.get(i);
+			Savepoint savepoint = connection.setSavepoint();
+			try {
+				outcomes[i] = CouponDBDAO.purchaseInTransaction(connection, record.couponId, record.custId);
+			} catch (SQLException e) {
+				e.printStackTrace();
+				failures[i] = e;
+				connection.rollback(savepoint);
+				continue;
+			}
+			if (outcomes[i] == PurchaseOutcome.PURCHASED) {
+				connection.releaseSavepoint(savepoint);
+			} else {
+				connection.rollback(savepoint);
+			}
+		}
+		return outcomes;
+	}
+
+	/**
+	 * The method stops the journal if it was started. The purchases that are
+	 * already queued are committed before the method returns.
+	 */
+
+	public static void shutdown() {
+		// does not start the journal only to stop it
+		if (started) {
+			PurchaseJournal journal = getInstance();
+			journal.running = false;
+			try {
+				journal.writer.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+}
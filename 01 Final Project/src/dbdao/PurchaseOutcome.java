@@ -0,0 +1,15 @@
+/**
+ * The enum class that describes the result of the Coupon purchase.
+ * 
+ * @author Alexandra Shapira
+ */
+
+package dbdao;
+
+public enum PurchaseOutcome {
+
+	PURCHASED,
+	SOLD_OUT,
+	ALREADY_OWNED;
+
+}
@@ -0,0 +1,468 @@
+/**
+ * Queries holds the SQL of the DAO queries that find the rows by a condition.
+ * The DAO classes take their queries from here, and every query is registered
+ * with sample parameters when it is defined, so IndexVerifier explains exactly
+ * the queries that the DAO classes run and a query can't be changed or added
+ * without being verified. The queries that are built from parts (the pages,
+ * the search, the IN lists) are registered in every shape the DAO classes can
+ * build. The INSERTs and the partial updates by the primary key are not here.
+ * @author Alexandra Shapira
+ */
+
+package dbdao;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+import facades.ClientType;
+import javaBeans.CouponSearch;
+import javaBeans.CouponSortOrder;
+import javaBeans.CouponType;
+
+public final class Queries {
+
+	/**
+	 * The query with the sample parameters for EXPLAIN.
+	 */
+
+	public static final class Shape {
+
+		private final String sql;
+		private final Object[] parameters;
+		private final boolean scanExpected;
+
+		private Shape(String sql, Object[] parameters, boolean scanExpected) {
+			this.sql = sql;
+			this.parameters = parameters;
+			this.scanExpected = scanExpected;
+		}
+
+		public String getSql() {
+			return sql;
+		}
+
+		public Object[] getParameters() {
+			return parameters.clone();
+		}
+
+		/**
+		 * The method checks if the query reads the whole table by design (the
+		 * lists of all the active records).
+		 *
+		 * @return true if the full scan is not a problem
+		 */
+
+		public boolean isScanExpected() {
+			return scanExpected;
+		}
+	}
+
+	private static final List<Shape> SHAPES = new ArrayList<Shape>();
+
+	private static final String ID = "00000000-0000-0000-0000-000000000000";
+	private static final Date DATE = new Date(System.currentTimeMillis());
+	private static final int LIMIT = 51;
+	private static final int IN_LIST = 2;
+
+	// company
+
+	static final String COMPANY_LOGIN = shape("SELECT ID FROM company WHERE COMP_NAME = ? AND PASSWORD = ?",
+			"name", "password");
+	static final String ALL_COMPANIES = scan("SELECT " + CompanyRowMapper.COLUMNS + " FROM company "
+			+ "WHERE IS_ACTIVE = TRUE");
+	static final String ALL_COMPANIES_COUPONS = scan("SELECT cc.COMP_ID, " + CouponRowMapper.COLUMNS
+			+ " FROM company_coupon cc "
+			+ "INNER JOIN coupon cp ON cc.COUPON_ID = cp.ID "
+			+ "INNER JOIN company cm ON cc.COMP_ID = cm.ID "
+			+ "WHERE cm.IS_ACTIVE = TRUE AND cp.IS_ACTIVE = TRUE");
+	static final String COMPANY_COUPONS = shape("SELECT " + CouponRowMapper.COLUMNS + " FROM company_coupon cc "
+			+ "INNER JOIN coupon cp ON cc.COUPON_ID = cp.ID "
+			+ "WHERE cc.COMP_ID = ? AND cp.IS_ACTIVE = TRUE", ID);
+
+	// customer
+
+	static final String CUSTOMER_LOGIN = shape("SELECT ID FROM customer WHERE CUST_NAME = ? AND PASSWORD = ?",
+			"name", "password");
+	static final String ALL_CUSTOMERS = scan("SELECT " + CustomerRowMapper.COLUMNS + " FROM customer "
+			+ "WHERE IS_ACTIVE = TRUE");
+	static final String ALL_CUSTOMERS_COUPONS = scan("SELECT cc.CUST_ID, " + CouponRowMapper.COLUMNS
+			+ " FROM customer_coupon cc "
+			+ "INNER JOIN coupon cp ON cc.COUPON_ID = cp.ID "
+			+ "INNER JOIN customer cs ON cc.CUST_ID = cs.ID "
+			+ "WHERE cs.IS_ACTIVE = TRUE AND cc.IS_ACTIVE = TRUE");
+	static final String CUSTOMER_COUPONS = shape("SELECT " + CouponRowMapper.COLUMNS + " FROM customer_coupon cc "
+			+ "INNER JOIN coupon cp ON cc.COUPON_ID = cp.ID "
+			+ "WHERE cc.CUST_ID = ? AND cc.IS_ACTIVE = TRUE", ID);
+
+	// coupon
+
+	static final String COUPON_BY_ID = shape("SELECT " + CouponRowMapper.COLUMNS + " FROM coupon cp "
+			+ "WHERE cp.ID = ?", ID);
+	static final String ALL_COUPONS = scan("SELECT " + CouponRowMapper.COLUMNS + " FROM coupon cp "
+			+ "WHERE cp.IS_ACTIVE = TRUE");
+	static final String COUPONS_BY_DATE = shape("SELECT " + CouponRowMapper.COLUMNS + " FROM company c "
+			+ "INNER JOIN company_coupon cc ON c.ID = cc.COMP_ID "
+			+ "INNER JOIN coupon cp ON cc.COUPON_ID = cp.ID "
+			+ "WHERE c.ID = ? "
+			+ "AND cp.END_DATE < ? "
+			+ "AND cp.IS_ACTIVE = TRUE "
+			+ "AND cc.IS_ACTIVE = TRUE", ID, DATE);
+	static final String COMPANY_OF_COUPON = shape("SELECT cc.COMP_ID FROM coupon cp "
+			+ "INNER JOIN company_coupon cc on cp.ID = cc.COUPON_ID "
+			+ "WHERE cp.ID = ?", ID);
+	static final String OWNED_COUPON = shape("SELECT COUPON_ID FROM customer_coupon "
+			+ "WHERE CUST_ID = ? "
+			+ "AND COUPON_ID = ? "
+			+ "AND IS_ACTIVE = TRUE", ID, ID);
+	static final String COUPON_AMOUNT_FOR_UPDATE = shape("SELECT AMOUNT FROM coupon "
+			+ "WHERE ID = ? "
+			+ "AND IS_ACTIVE = TRUE "
+			+ "FOR UPDATE", ID);
+	// the purchase doesn't change the VERSION, so the edits of a coupon that is
+	// being sold don't conflict with the purchases; AMOUNT > 0 guards the stock
+	static final String TAKE_FROM_STOCK = shape("UPDATE coupon "
+			+ "SET AMOUNT = AMOUNT - 1 "
+			+ "WHERE ID = ? "
+			+ "AND IS_ACTIVE = TRUE "
+			+ "AND AMOUNT > 0", ID);
+	static final String JOIN_IF_NOT_OWNED = shape("INSERT INTO customer_coupon "
+			+ "(CUST_ID, COUPON_ID) "
+			+ "SELECT ?, ? FROM DUAL "
+			+ "WHERE NOT EXISTS (SELECT * FROM customer_coupon "
+				+ "WHERE CUST_ID = ? "
+				+ "AND COUPON_ID = ? "
+				+ "AND IS_ACTIVE = TRUE)", ID, ID, ID, ID);
+	static final String UNDO_JOIN = shape("DELETE FROM customer_coupon "
+			+ "WHERE CUST_ID = ? "
+			+ "AND COUPON_ID = ? "
+			+ "AND IS_ACTIVE = TRUE", ID, ID);
+	static final String REMOVE_COUPON = shape("UPDATE coupon cp "
+			+ "JOIN company_coupon cc on cp.ID = cc.COUPON_ID "
+			+ "JOIN customer_coupon ccp on ccp.COUPON_ID = cp.ID "
+			+ "SET cc.IS_ACTIVE = false, "
+			+ "cp.IS_ACTIVE = false, "
+			+ "ccp.IS_ACTIVE = false "
+			+ "WHERE cp.ID = ?", ID);
+	static final String EXPIRE_COMPANY_COUPONS = shape("UPDATE coupon c "
+			+ "INNER JOIN company_coupon cc ON c.ID = cc.COUPON_ID "
+			+ "SET c.IS_ACTIVE = false, "
+			+ "cc.IS_ACTIVE = false "
+			+ "WHERE c.END_DATE < ?", DATE);
+	static final String EXPIRE_CUSTOMER_COUPONS = shape("UPDATE coupon c "
+			+ "LEFT JOIN customer_coupon cc ON c.ID = cc.COUPON_ID "
+			+ "SET c.IS_ACTIVE = false, "
+			+ "cc.IS_ACTIVE = false WHERE c.END_DATE < ?", DATE);
+
+	// removal in chunks
+
+	static final String NEXT_COMPANY_COUPONS = shape("SELECT COUPON_ID FROM company_coupon "
+			+ "WHERE COMP_ID = ? "
+			+ "AND IS_ACTIVE = TRUE "
+			+ "ORDER BY COUPON_ID "
+			+ "LIMIT ?", ID, LIMIT);
+	static final String DEACTIVATE_CUSTOMER_PURCHASES = shape("UPDATE customer_coupon SET IS_ACTIVE = FALSE "
+			+ "WHERE CUST_ID = ? "
+			+ "AND IS_ACTIVE = TRUE "
+			+ "LIMIT ?", ID, LIMIT);
+
+	static {
+		for (ParameterType parameter : Arrays.asList(ParameterType.ID, ParameterType.COMP_NAME)) {
+			shape(companyByParameter(parameter), ID);
+		}
+		for (ParameterType parameter : Arrays.asList(ParameterType.ID, ParameterType.CUST_NAME)) {
+			shape(customerByParameter(parameter), ID);
+		}
+		shape(companiesPage(false), LIMIT);
+		shape(companiesPage(true), ID, LIMIT);
+		shape(customersPage(false), LIMIT);
+		shape(customersPage(true), ID, LIMIT);
+		shape(companiesCoupons(IN_LIST), ID, ID);
+		shape(customersCoupons(IN_LIST), ID, ID);
+		for (ClientType clientType : Arrays.asList(ClientType.COMPANY, ClientType.CUSTOMER)) {
+			shape(couponsPage(clientType, false), ID, LIMIT);
+			shape(couponsPage(clientType, true), ID, DATE, DATE, ID, LIMIT);
+			shape(couponsByType(clientType), ID, CouponType.RESTAURANTS.toString());
+			shape(couponsByPrice(clientType), ID, 100.0);
+			List<Object> parameters = new ArrayList<Object>();
+			shape(searchCoupons(new CouponSearch(), clientType, ID, parameters), parameters.toArray());
+			for (CouponSortOrder sortOrder : CouponSortOrder.values()) {
+				CouponSearch search = new CouponSearch();
+				search.setTypes(EnumSet.of(CouponType.RESTAURANTS, CouponType.GOODS));
+				search.setMinPrice(10.0);
+				search.setMaxPrice(100.0);
+				search.setEndDateFrom(DATE);
+				search.setEndDateTo(DATE);
+				search.setTitlePrefix("title");
+				search.setSortOrder(sortOrder);
+				search.setLimit(LIMIT);
+				parameters = new ArrayList<Object>();
+				shape(searchCoupons(search, clientType, ID, parameters), parameters.toArray());
+			}
+		}
+		shape(deactivateCoupons(IN_LIST), ID, ID);
+		shape(deactivatePurchasesOfCoupons(IN_LIST), ID, ID, LIMIT);
+		shape(deactivateCompanyCoupons(IN_LIST), ID, ID, ID);
+		for (String table : Arrays.asList("company", "customer", "coupon")) {
+			shape(versionOf(table), ID);
+		}
+		for (String table : Arrays.asList("company", "customer")) {
+			shape(deactivate(table), ID);
+		}
+	}
+
+	private Queries() {
+	}
+
+	private static String shape(String sql, Object... parameters) {
+		SHAPES.add(new Shape(sql, parameters, false));
+		return sql;
+	}
+
+	private static String scan(String sql, Object... parameters) {
+		SHAPES.add(new Shape(sql, parameters, true));
+		return sql;
+	}
+
+	/**
+	 * The method gets all the registered queries.
+	 *
+	 * @return List of Shapes in the order of their definition
+	 */
+
+	public static List<Shape> getShapes() {
+		return Collections.unmodifiableList(SHAPES);
+	}
+
+	static String companyByParameter(ParameterType parameter) {
+		return "SELECT " + CompanyRowMapper.COLUMNS + " FROM company WHERE " + parameter + " = ?";
+	}
+
+	static String customerByParameter(ParameterType parameter) {
+		return "SELECT " + CustomerRowMapper.COLUMNS + " FROM customer WHERE " + parameter + " = ?";
+	}
+
+	/**
+	 * The method builds the query of the page of active companies.
+	 *
+	 * @param next
+	 *            false for the first page, true for the page after the ID
+	 * @return the query
+	 */
+
+	static String companiesPage(boolean next) {
+		return "SELECT " + CompanyRowMapper.COLUMNS + " FROM company "
+				+ "WHERE IS_ACTIVE = TRUE "
+				+ (next ? "AND ID > ? " : "")
+				+ "ORDER BY ID LIMIT ?";
+	}
+
+	static String customersPage(boolean next) {
+		return "SELECT " + CustomerRowMapper.COLUMNS + " FROM customer "
+				+ "WHERE IS_ACTIVE = TRUE "
+				+ (next ? "AND ID > ? " : "")
+				+ "ORDER BY ID LIMIT ?";
+	}
+
+	/**
+	 * The method builds the query of the coupons of the companies of a page.
+	 *
+	 * @param count
+	 *            The number of companies
+	 * @return the query
+	 */
+
+	static String companiesCoupons(int count) {
+		return "SELECT cc.COMP_ID, " + CouponRowMapper.COLUMNS + " FROM company_coupon cc "
+				+ "INNER JOIN coupon cp ON cc.COUPON_ID = cp.ID "
+				+ "WHERE cp.IS_ACTIVE = TRUE "
+				+ "AND cc.COMP_ID" + in(count);
+	}
+
+	static String customersCoupons(int count) {
+		return "SELECT cc.CUST_ID, " + CouponRowMapper.COLUMNS + " FROM customer_coupon cc "
+				+ "INNER JOIN coupon cp ON cc.COUPON_ID = cp.ID "
+				+ "WHERE cc.IS_ACTIVE = TRUE "
+				+ "AND cc.CUST_ID" + in(count);
+	}
+
+	/**
+	 * The method builds the query of the page of the active coupons of the
+	 * client ordered by END_DATE and ID.
+	 *
+	 * @param clientType
+	 *            Enum ClientType
+	 * @param next
+	 *            false for the first page, true for the page after END_DATE
+	 *            and ID
+	 * @return the query
+	 */
+
+	static String couponsPage(ClientType clientType, boolean next) {
+		String conditions = (next ? "AND (cp.END_DATE > ? OR (cp.END_DATE = ? AND cp.ID > ?)) " : "")
+				+ "ORDER BY cp.END_DATE, cp.ID LIMIT ?";
+		switch (clientType){
+		case COMPANY: return "SELECT " + CouponRowMapper.COLUMNS + " FROM company_coupon cc "
+				+ "INNER JOIN coupon cp ON cc.COUPON_ID = cp.ID "
+				+ "WHERE cc.COMP_ID = ? "
+				+ "AND cp.IS_ACTIVE = TRUE "
+				+ conditions;
+		case CUSTOMER: return "SELECT " + CouponRowMapper.COLUMNS + " FROM customer_coupon cc "
+				+ "INNER JOIN coupon cp ON cc.COUPON_ID = cp.ID "
+				+ "WHERE cc.CUST_ID = ? "
+				+ "AND cc.IS_ACTIVE = TRUE "
+				+ conditions;
+		default:
+			return "";
+		}
+	}
+
+	static String couponsByType(ClientType clientType) {
+		return clientCoupons(clientType, "AND cp.TYPE = ? ");
+	}
+
+	static String couponsByPrice(ClientType clientType) {
+		return clientCoupons(clientType, "AND cp.PRICE < ? ");
+	}
+
+	/**
+	 * The method builds the query of the active coupons that were released by
+	 * specific Company or were purchased by specific Client.
+	 *
+	 * @param clientType
+	 *            Enum ClientType
+	 * @param condition
+	 *            The additional condition of the query
+	 * @return the query
+	 */
+
+	private static String clientCoupons(ClientType clientType, String condition) {
+		String conditions = "WHERE c.ID = ? "
+				+ condition
+				+ "AND cp.IS_ACTIVE = TRUE";
+		switch (clientType){
+		case COMPANY: return "SELECT " + CouponRowMapper.COLUMNS + " FROM company c "
+				+ "INNER JOIN company_coupon cc ON c.ID = cc.COMP_ID "
+				+ "INNER JOIN coupon cp ON cc.COUPON_ID = cp.ID "
+				+ conditions;
+		case CUSTOMER: return "SELECT " + CouponRowMapper.COLUMNS + " FROM customer c "
+				+ "INNER JOIN customer_coupon cc ON c.ID = cc.CUST_ID "
+				+ "INNER JOIN coupon cp ON cc.COUPON_ID = cp.ID "
+				+ conditions;
+		default:
+			return "";
+		}
+	}
+
+	/**
+	 * The method builds the query of the search of the coupons of the client
+	 * and collects its parameters. Only the criteria that are set become
+	 * conditions.
+	 *
+	 * @param search
+	 *            The criteria of the search
+	 * @param clientType
+	 *            Enum ClientType
+	 * @param clientId
+	 *            The ID of Company or Customer
+	 * @param parameters
+	 *            The list the parameters of the query are added to
+	 * @return the query
+	 */
+
+	static String searchCoupons(CouponSearch search, ClientType clientType, String clientId,
+			List<Object> parameters) {
+		StringBuilder query = new StringBuilder("SELECT ").append(CouponRowMapper.COLUMNS);
+		switch (clientType){
+		case COMPANY: query.append(" FROM company_coupon cc "
+				+ "INNER JOIN coupon cp ON cc.COUPON_ID = cp.ID "
+				+ "WHERE cc.COMP_ID = ? "
+				+ "AND cp.IS_ACTIVE = TRUE");
+		break;
+		case CUSTOMER: query.append(" FROM customer_coupon cc "
+				+ "INNER JOIN coupon cp ON cc.COUPON_ID = cp.ID "
+				+ "WHERE cc.CUST_ID = ? "
+				+ "AND cc.IS_ACTIVE = TRUE "
+				+ "AND cp.IS_ACTIVE = TRUE");
+		break;
+		default:
+			break;
+		}
+		parameters.add(clientId);
+		if (search.getTypes() != null && !search.getTypes().isEmpty()) {
+			query.append(" AND cp.TYPE IN (")
+					.append(String.join(", ", Collections.nCopies(search.getTypes().size(), "?"))).append(")");
+			for (CouponType type : search.getTypes()) {
+				parameters.add(type.toString());
+			}
+		}
+		if (search.getMinPrice() != null) {
+			query.append(" AND cp.PRICE >= ?");
+			parameters.add(search.getMinPrice());
+		}
+		if (search.getMaxPrice() != null) {
+			query.append(" AND cp.PRICE < ?");
+			parameters.add(search.getMaxPrice());
+		}
+		if (search.getEndDateFrom() != null) {
+			query.append(" AND cp.END_DATE >= ?");
+			parameters.add(search.getEndDateFrom());
+		}
+		if (search.getEndDateTo() != null) {
+			query.append(" AND cp.END_DATE < ?");
+			parameters.add(search.getEndDateTo());
+		}
+		if (search.getTitlePrefix() != null && !search.getTitlePrefix().isEmpty()) {
+			query.append(" AND cp.TITLE LIKE ?");
+			parameters.add(search.getTitlePrefix().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%");
+		}
+		switch (search.getSortOrder() == null ? CouponSortOrder.END_DATE : search.getSortOrder()) {
+		case PRICE_ASC: query.append(" ORDER BY cp.PRICE, cp.ID");
+		break;
+		case PRICE_DESC: query.append(" ORDER BY cp.PRICE DESC, cp.ID");
+		break;
+		case TITLE: query.append(" ORDER BY cp.TITLE, cp.ID");
+		break;
+		default: query.append(" ORDER BY cp.END_DATE, cp.ID");
+			break;
+		}
+		if (search.getLimit() > 0) {
+			query.append(" LIMIT ?");
+			parameters.add(search.getLimit());
+		}
+		return query.toString();
+	}
+
+	static String deactivateCoupons(int count) {
+		return "UPDATE coupon SET IS_ACTIVE = FALSE WHERE ID" + in(count);
+	}
+
+	static String deactivatePurchasesOfCoupons(int count) {
+		return "UPDATE customer_coupon SET IS_ACTIVE = FALSE "
+				+ "WHERE IS_ACTIVE = TRUE "
+				+ "AND COUPON_ID" + in(count) + " "
+				+ "LIMIT ?";
+	}
+
+	static String deactivateCompanyCoupons(int count) {
+		return "UPDATE company_coupon SET IS_ACTIVE = FALSE "
+				+ "WHERE COMP_ID = ? "
+				+ "AND COUPON_ID" + in(count);
+	}
+
+	static String deactivate(String table) {
+		return "UPDATE " + table + " SET IS_ACTIVE = FALSE, VERSION = VERSION + 1 WHERE ID = ?";
+	}
+
+	static String versionOf(String table) {
+		return "SELECT VERSION FROM " + table + " WHERE ID = ?";
+	}
+
+	private static String in(int count) {
+		return " IN (" + String.join(", ", Collections.nCopies(count, "?")) + ")";
+	}
+
+}
@@ -0,0 +1,29 @@
+/**
+ * The interface that receives the progress of the cascading removal of
+ * Company or Customer. It is called after every chunk of rows that was
+ * deactivated and committed.
+ * 
+ * @author Alexandra Shapira
+ */
+
+package dbdao;
+
+@FunctionalInterface
+public interface RemovalListener {
+
+	/** The listener that ignores the progress. */
+	RemovalListener NONE = (table, rows) -> {
+	};
+
+	/**
+	 * The method is called after the chunk was committed.
+	 * 
+	 * @param table
+	 *            The table of the deactivated rows
+	 * @param rows
+	 *            The number of rows in the chunk
+	 */
+
+	void chunkRemoved(String table, int rows);
+
+}
@@ -0,0 +1,107 @@
+/**
+ * ResultSetSpliterator reads the rows of a forward-only ResultSet one by one,
+ * so a stream of records doesn't keep them all in memory. It owns the
+ * connection, the statement and the ResultSet and closes them when the stream
+ * is closed or all the rows were read.
+ * @author Alexandra Shapira
+ */
+
+package dbdao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import exceptions.StreamingException;
+
+class ResultSetSpliterator<T> extends Spliterators.AbstractSpliterator<T> implements AutoCloseable {
+
+	private final Connection connection;
+	private final PreparedStatement preparedStatement;
+	private final ResultSet rs;
+	private final RowMapper<T> mapper;
+	private boolean closed;
+
+	/**
+	 * Class constructor.
+	 * 
+	 * @param connection
+	 *            The connection that is released when the stream is closed
+	 * @param preparedStatement
+	 *            The executed statement
+	 * @param rs
+	 *            The ResultSet of the statement
+	 * @param mapper
+	 *            The function that converts a row into an object
+	 */
+
+	ResultSetSpliterator(Connection connection, PreparedStatement preparedStatement, ResultSet rs,
+			RowMapper<T> mapper) {
+		super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+		this.connection = connection;
+		this.preparedStatement = preparedStatement;
+		this.rs = rs;
+		this.mapper = mapper;
+	}
+
+	/**
+	 * The method creates the sequential stream of the rows that closes the
+	 * database resources on close().
+	 * 
+	 * @return Stream of objects
+	 */
+
+	Stream<T> stream() {
+		return StreamSupport.stream(this, false).onClose(this::close);
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super T> action) {
+		if (closed) {
+			return false;
+		}
+		try {
+			if (!rs.next()) {
+				close();
+				return false;
+			}
+			action.accept(mapper.mapRow(rs));
+			return true;
+		} catch (SQLException e) {
+			close();
+			throw new StreamingException(e);
+		}
+	}
+
+	/**
+	 * The method closes the ResultSet and the statement and returns the
+	 * connection to the pool. It may be called more than once.
+	 */
+
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			rs.close();
+			preparedStatement.close();
+		} catch (SQLException e) {
+			e.printStackTrace();
+		} finally {
+			try {
+				connection.close();
+			} catch (SQLException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+}
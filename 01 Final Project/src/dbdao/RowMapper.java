@@ -0,0 +1,18 @@
+/**
+ * The functional interface that converts the current row of the ResultSet
+ * into an object.
+ * 
+ * @author Alexandra Shapira
+ */
+
+package dbdao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+@FunctionalInterface
+interface RowMapper<T> {
+
+	T mapRow(ResultSet rs) throws SQLException;
+
+}
@@ -0,0 +1,19 @@
+/**
+ * This Exception is thrown by the lazily loaded set of coupons when the
+ * coupons can't be read from the database on the first access. It is
+ * unchecked because the Set methods can't throw the checked exceptions.
+ * 
+ * @author Alexandra Shapira
+ */
+
+package exceptions;
+
+public class LazyLoadingException extends RuntimeException {
+
+	private static final long serialVersionUID = -4125939357466405518L;
+
+	public LazyLoadingException(Throwable cause) {
+		super("Failed to load the set of coupons", cause);
+	}
+
+}
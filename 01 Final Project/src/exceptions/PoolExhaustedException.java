@@ -0,0 +1,19 @@
+/**
+ * This Exception is thrown by the connection pool when no connection becomes
+ * free during the acquire timeout. It is unchecked, so it passes through the
+ * DBDAO methods to the caller without changing their signatures.
+ * 
+ * @author Alexandra Shapira
+ */
+
+package exceptions;
+
+public class PoolExhaustedException extends RuntimeException {
+
+	private static final long serialVersionUID = 3390717606476217390L;
+
+	public PoolExhaustedException(long timeoutMillis) {
+		super("No free connection in the pool after " + timeoutMillis + " ms");
+	}
+
+}
@@ -0,0 +1,32 @@
+/**
+ * DBDAO Exception which is used when the record was changed by another update
+ * after it was read, so the update based on the old version is rejected. The
+ * record should be read again and the change repeated on the new version.
+ * 
+ * @author Alexandra Shapira
+ */
+
+package exceptions;
+
+public class StaleVersionException extends FailedToException {
+
+	private static final long serialVersionUID = 3348162609371840521L;
+
+	private final int staleVersion;
+	private final int currentVersion;
+
+	public StaleVersionException(EntryType entryType, String id, int staleVersion, int currentVersion) {
+		super(entryType, ActionType.UPDATE, id);
+		this.staleVersion = staleVersion;
+		this.currentVersion = currentVersion;
+	}
+
+	public int getStaleVersion() {
+		return staleVersion;
+	}
+
+	public int getCurrentVersion() {
+		return currentVersion;
+	}
+
+}
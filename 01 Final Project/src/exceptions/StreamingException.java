@@ -0,0 +1,19 @@
+/**
+ * This Exception is thrown by the streams of database records when the next
+ * record can't be read. It is unchecked because the Stream methods can't throw
+ * the checked exceptions.
+ * 
+ * @author Alexandra Shapira
+ */
+
+package exceptions;
+
+public class StreamingException extends RuntimeException {
+
+	private static final long serialVersionUID = 6201859176348104718L;
+
+	public StreamingException(Throwable cause) {
+		super("Failed to read the next record", cause);
+	}
+
+}
@@ -10,7 +10,9 @@ package facades;
 import java.util.ArrayList;
 import java.util.List;
 
+import dao.Page;
 import dbdao.ParameterType;
+import dbdao.RemovalListener;
 import exceptions.NotFoundException;
 import exceptions.DAOException;
 import exceptions.FailedToException;
@@ -53,6 +55,26 @@ public class AdminFacade extends CouponClientFacadeSuperClass implements CouponC
 			companyDAO.removeCompany(company);
 		
 	}
+
+	/**
+	 * The method removes the Company like removeCompany(Company) and reports
+	 * the progress of the removal chunk by chunk. If the removal fails it can
+	 * be resumed by calling the method again.
+	 * 
+	 * @param company
+	 *            The Company to remove
+	 * @param listener
+	 *            The listener of the progress
+	 * @throws NoRightsException
+	 * @throws FailedToException 
+	 * @throws NotFoundException 
+	 */
+
+	@Override
+	public void removeCompany(Company company, RemovalListener listener)
+			throws NoRightsException, NotFoundException, FailedToException {
+		companyDAO.removeCompany(company, listener);
+	}
 	
 	/**
 	 * The method updates all the Company's attributes except of ID and name.
@@ -61,16 +83,17 @@ public class AdminFacade extends CouponClientFacadeSuperClass implements CouponC
 	 *            Company to update
 	 * @throws NoRightsException
 	 * @throws FailedToException 
+	 *             StaleVersionException if the caller read an older version
 	 * @throws NotFoundException 
 	 */
 
 	@Override
 	public void updateCompany(Company company) throws NoRightsException, NotFoundException, FailedToException {
-		Company original;
-		original = companyDAO.getCompanyByParameter(ParameterType.ID, company.getId());
-		original.setEmail(company.getEmail());
-		original.setPassword(company.getPassword());
-		companyDAO.updateCompany(original);
+		Company changes = new Company(company.getId());
+		changes.setVersion(company.getVersion());
+		changes.setEmail(company.getEmail());
+		changes.setPassword(company.getPassword());
+		companyDAO.updateCompany(changes);
 
 	}
 
@@ -106,6 +129,23 @@ public class AdminFacade extends CouponClientFacadeSuperClass implements CouponC
 		companies = companyDAO.getAllCompanies();
 		return companies;
 	}
+
+	/**
+	 * This method gets one page of the active Companies ordered by ID.
+	 * 
+	 * @param pageSize
+	 *            The number of Companies in the page
+	 * @param pageToken
+	 *            The token of the previous page or null for the first page
+	 * @return Page of Companies
+	 * @throws NoRightsException
+	 * @throws DAOException 
+	 */
+
+	@Override
+	public Page<Company> getAllCompanies(int pageSize, String pageToken) throws NoRightsException, DAOException {
+		return companyDAO.getAllCompanies(pageSize, pageToken);
+	}
 	
 	/**
 	 * This method converts a Customer object into a database record.
@@ -138,6 +178,26 @@ public class AdminFacade extends CouponClientFacadeSuperClass implements CouponC
 	public void removeCustomer(Customer customer) throws NoRightsException, NotFoundException, FailedToException {
 			customerDAO.removeCustomer(customer);
 	}
+
+	/**
+	 * The method removes the Customer like removeCustomer(Customer) and
+	 * reports the progress of the removal chunk by chunk. If the removal fails
+	 * it can be resumed by calling the method again.
+	 * 
+	 * @param customer
+	 *            The Customer to remove
+	 * @param listener
+	 *            The listener of the progress
+	 * @throws NoRightsException
+	 * @throws FailedToException 
+	 * @throws NotFoundException 
+	 */
+
+	@Override
+	public void removeCustomer(Customer customer, RemovalListener listener)
+			throws NoRightsException, NotFoundException, FailedToException {
+		customerDAO.removeCustomer(customer, listener);
+	}
 	
 	/**
 	 * The method updates Customer's data in the database according to changes
@@ -147,15 +207,16 @@ public class AdminFacade extends CouponClientFacadeSuperClass implements CouponC
 	 *            The Customer object
 	 * @throws NoRightsException
 	 * @throws FailedToException 
+	 *             StaleVersionException if the caller read an older version
 	 * @throws NotFoundException 
 	 */
 
 	@Override
 	public void updateCustomer(Customer customer) throws NoRightsException, NotFoundException, FailedToException {
-		Customer original;
-			original = customerDAO.getCustomerByParameter(ParameterType.ID, customer.getId());
-			original.setPassword(customer.getPassword());
-			customerDAO.updateCustomer(customer);
+		Customer changes = new Customer(customer.getId());
+		changes.setVersion(customer.getVersion());
+		changes.setPassword(customer.getPassword());
+		customerDAO.updateCustomer(changes);
 	}
 
 	/**
@@ -190,4 +251,21 @@ public class AdminFacade extends CouponClientFacadeSuperClass implements CouponC
 		return customers;
 	}
 
+	/**
+	 * This method gets one page of the active Customers ordered by ID.
+	 * 
+	 * @param pageSize
+	 *            The number of Customers in the page
+	 * @param pageToken
+	 *            The token of the previous page or null for the first page
+	 * @return Page of Customers
+	 * @throws NoRightsException
+	 * @throws DAOException 
+	 */
+
+	@Override
+	public Page<Customer> getAllCustomers(int pageSize, String pageToken) throws NoRightsException, DAOException {
+		return customerDAO.getAllCustomers(pageSize, pageToken);
+	}
+
 }
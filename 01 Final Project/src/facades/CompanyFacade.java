@@ -8,9 +8,12 @@
 package facades;
 
 import java.sql.Date;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
+import dao.Page;
 import dbdao.ParameterType;
 import exceptions.FailedToException;
 import exceptions.FailedToGetListOfCouponsException;
@@ -18,6 +21,7 @@ import exceptions.NoRightsException;
 import exceptions.NotFoundException;
 import javaBeans.Company;
 import javaBeans.Coupon;
+import javaBeans.CouponSearch;
 import javaBeans.CouponType;
 
 public class CompanyFacade extends CouponClientFacadeSuperClass implements CouponClientFacade {
@@ -57,6 +61,22 @@ public class CompanyFacade extends CouponClientFacadeSuperClass implements Coupo
 			couponDAO.joinCouponCompany(coupon, this.company.getId());
 		
 	}
+
+	/**
+	 * The method converts many Coupon objects into database records and links
+	 * them to the specific Company in one transaction. It should be used
+	 * instead of createCoupon for the campaigns of many coupons.
+	 * 
+	 * @param coupons
+	 *            The Coupons that Company releases
+	 * @throws NoRightsException
+	 * @throws FailedToException 
+	 */
+	
+	@Override
+	public void createCoupons(Collection<Coupon> coupons) throws NoRightsException, FailedToException {
+		couponDAO.createCoupons(coupons, this.company.getId());
+	}
 	
 	/**
 	 * This method checks if the Coupon released by the Company that manages the
@@ -88,17 +108,20 @@ public class CompanyFacade extends CouponClientFacadeSuperClass implements Coupo
 	 * @throws NoRightsException
 	 * @throws FailedToGetListOfCouponsException 
 	 * @throws FailedToException 
+	 *             StaleVersionException if the caller read an older version
 	 * @throws NotFoundException 
 	 */
 	
 	@Override
 	public void updateCoupon(Coupon coupon) throws NoRightsException, NotFoundException, FailedToException, FailedToGetListOfCouponsException {
-		Coupon original;
 			if (couponDAO.releasedByCompany (coupon, this.company.getId())){
-				original = couponDAO.getCoupon(coupon.getId());
-				original.setEndDate(coupon.getEndDate());
-				original.setPrice(coupon.getPrice());
-				couponDAO.updateCoupon(original);
+				// only the end date and the price are written, without reading the
+				// coupon; the version is checked if the caller read the coupon
+				Coupon changes = new Coupon(coupon.getId());
+				changes.setVersion(coupon.getVersion());
+				changes.setEndDate(coupon.getEndDate());
+				changes.setPrice(coupon.getPrice());
+				couponDAO.updateCoupon(changes);
 			}
 			else {
 				throw new NoRightsException();
@@ -157,6 +180,24 @@ public class CompanyFacade extends CouponClientFacadeSuperClass implements Coupo
 			coupons = companyDAO.getCoupons(this.company.getId());
 		return coupons;
 	}
+
+	/**
+	 * This method gets one page of the active coupons released by the Company
+	 * ordered by the end date.
+	 * 
+	 * @param pageSize
+	 *            The number of coupons in the page
+	 * @param pageToken
+	 *            The token of the previous page or null for the first page
+	 * @return Page of Coupons
+	 * @throws NoRightsException
+	 * @throws FailedToGetListOfCouponsException 
+	 */
+	
+	@Override
+	public Page<Coupon> getAllCoupons(int pageSize, String pageToken) throws NoRightsException, FailedToGetListOfCouponsException {
+		return couponDAO.getCoupons(ClientType.COMPANY, this.company.getId(), pageSize, pageToken);
+	}
 	
 	/**
 	 * This method gets all Coupons released by Company by Coupon type.
@@ -174,6 +215,22 @@ public class CompanyFacade extends CouponClientFacadeSuperClass implements Coupo
 			coupons = couponDAO.getCouponByType(type, ClientType.COMPANY, this.company.getId());
 		return coupons;
 	}
+
+	/**
+	 * This method finds the active coupons released by the Company by all the
+	 * criteria of the search in one query.
+	 * 
+	 * @param search
+	 *            The criteria of the search
+	 * @return coupons ArrayList of Coupons
+	 * @throws NoRightsException
+	 * @throws FailedToGetListOfCouponsException 
+	 */
+	
+	@Override
+	public List<Coupon> searchCoupons(CouponSearch search) throws NoRightsException, FailedToGetListOfCouponsException {
+		return couponDAO.searchCoupons(search, ClientType.COMPANY, this.company.getId());
+	}
 	
 	/**
 	 * This method gets all Coupons released by Company under the definite
@@ -11,6 +11,7 @@ package facades;
 
 import java.awt.HeadlessException;
 import java.sql.Date;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -19,9 +20,11 @@ import javax.swing.JOptionPane;
 import dao.CompanyDAO;
 import dao.CouponDAO;
 import dao.CustomerDAO;
+import dao.Page;
 import dbdao.CompanyDBDAO;
 import dbdao.CouponDBDAO;
 import dbdao.CustomerDBDAO;
+import dbdao.RemovalListener;
 import exceptions.DAOException;
 import exceptions.FailedToException;
 import exceptions.FailedToGetListOfCouponsException;
@@ -29,6 +32,7 @@ import exceptions.NoRightsException;
 import exceptions.NotFoundException;
 import javaBeans.Company;
 import javaBeans.Coupon;
+import javaBeans.CouponSearch;
 import javaBeans.CouponType;
 import javaBeans.Customer;
 
@@ -57,6 +61,11 @@ public class CouponClientFacadeSuperClass implements CouponClientFacade {
 		throw new NoRightsException();
 	}
 
+	public void removeCompany(Company company, RemovalListener listener)
+			throws NoRightsException, NotFoundException, FailedToException {
+		throw new NoRightsException();
+	}
+
 	public void updateCompany(Company company) throws NoRightsException, NotFoundException, FailedToException {
 		throw new NoRightsException();
 	}
@@ -73,6 +82,10 @@ public class CouponClientFacadeSuperClass implements CouponClientFacade {
 		throw new NoRightsException();
 	}
 
+	public Page<Company> getAllCompanies(int pageSize, String pageToken) throws NoRightsException, DAOException {
+		throw new NoRightsException();
+	}
+
 	public void createCustomer(Customer customer) throws NoRightsException, FailedToException {
 		throw new NoRightsException();
 	}
@@ -81,6 +94,11 @@ public class CouponClientFacadeSuperClass implements CouponClientFacade {
 		throw new NoRightsException();
 	}
 
+	public void removeCustomer(Customer customer, RemovalListener listener)
+			throws NoRightsException, NotFoundException, FailedToException {
+		throw new NoRightsException();
+	}
+
 	public void updateCustomer(Customer customer) throws NoRightsException, NotFoundException, FailedToException {
 		throw new NoRightsException();
 	}
@@ -93,10 +111,18 @@ public class CouponClientFacadeSuperClass implements CouponClientFacade {
 		throw new NoRightsException();
 	}
 
+	public Page<Customer> getAllCustomers(int pageSize, String pageToken) throws NoRightsException, DAOException {
+		throw new NoRightsException();
+	}
+
 	public void createCoupon(Coupon coupon) throws NoRightsException, FailedToException {
 		throw new NoRightsException();
 	}
 
+	public void createCoupons(Collection<Coupon> coupons) throws NoRightsException, FailedToException {
+		throw new NoRightsException();
+	}
+
 	public void removeCoupon(Coupon coupon) throws NoRightsException, NotFoundException, FailedToException {
 		throw new NoRightsException();
 	}
@@ -113,6 +139,10 @@ public class CouponClientFacadeSuperClass implements CouponClientFacade {
 		throw new NoRightsException();
 	}
 
+	public Page<Coupon> getAllCoupons(int pageSize, String pageToken) throws NoRightsException, FailedToGetListOfCouponsException {
+		throw new NoRightsException();
+	}
+
 	public Set<Coupon> getCouponsByType(CouponType type) throws NoRightsException, FailedToGetListOfCouponsException {
 		throw new NoRightsException();
 	}
@@ -125,6 +155,10 @@ public class CouponClientFacadeSuperClass implements CouponClientFacade {
 		throw new NoRightsException();
 	}
 
+	public List<Coupon> searchCoupons(CouponSearch search) throws NoRightsException, FailedToGetListOfCouponsException {
+		throw new NoRightsException();
+	}
+
 	public void purchaseCoupon(Coupon coupon) throws NoRightsException, FailedToException, NotFoundException, HeadlessException {
 		throw new NoRightsException();
 	}
@@ -133,6 +167,10 @@ public class CouponClientFacadeSuperClass implements CouponClientFacade {
 		throw new NoRightsException();
 	}
 
+	public Page<Coupon> getAllPurchasedCoupons(int pageSize, String pageToken) throws NoRightsException, FailedToGetListOfCouponsException {
+		throw new NoRightsException();
+	}
+
 	public Set<Coupon> getAllPurchasedCouponsByType(CouponType type) throws NoRightsException, FailedToGetListOfCouponsException {
 		throw new NoRightsException();
 	}
@@ -2,16 +2,19 @@ package facades;
 
 import java.awt.HeadlessException;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import javax.swing.JOptionPane;
 
+import dao.Page;
 import dbdao.ParameterType;
 import exceptions.FailedToException;
 import exceptions.FailedToGetListOfCouponsException;
 import exceptions.NoRightsException;
 import exceptions.NotFoundException;
 import javaBeans.Coupon;
+import javaBeans.CouponSearch;
 import javaBeans.CouponType;
 import javaBeans.Customer;
 
@@ -37,9 +40,10 @@ public CustomerFacade (String custName) throws NotFoundException, FailedToExcept
 }
 
 	/**
-	 * This method allow to Customer to purchase the Coupon. It checks if the
-	 * Customer already bought this Coupon and if there are coupons in stock and
-	 * creates a record in the database table customer_coupon.
+	 * This method allow to Customer to purchase the Coupon. In one transaction
+	 * it takes the coupon from the stock if there are coupons left and creates
+	 * a record in the database table customer_coupon if the Customer didn't
+	 * buy this Coupon yet.
 	 * 
 	 * @param coupon
 	 *            Coupon to purchase
@@ -51,18 +55,17 @@ public CustomerFacade (String custName) throws NotFoundException, FailedToExcept
 	
 	@Override
 	public void purchaseCoupon(Coupon coupon) throws NoRightsException, FailedToException, NotFoundException, HeadlessException {
-			if (couponDAO.allowedToPurchase(coupon, this.customer.getId()) && 
-					couponDAO.enoughCouponsToPurchase(coupon)){
-				couponDAO.joinCouponCustomer(coupon, this.customer.getId());
+			switch (couponDAO.purchase(coupon.getId(), this.customer.getId())) {
+			case PURCHASED:
 				coupon.setAmount(coupon.getAmount() - 1);
-				couponDAO.updateCoupon(coupon);
-			}
+				break;
 			// it's not the place for this pop up
-			else { if (!couponDAO.allowedToPurchase(coupon, this.customer.getId())){
+			case ALREADY_OWNED:
 				JOptionPane.showMessageDialog(null, "You've already purchased this coupon");
-			} else {
+				break;
+			case SOLD_OUT:
 				JOptionPane.showMessageDialog(null, "The coupon is out of stock");
-			}
+				break;
 			}
 		
 	}
@@ -81,6 +84,24 @@ public CustomerFacade (String custName) throws NotFoundException, FailedToExcept
 			coupons = customerDAO.getCoupons(this.customer.getId());
 		return coupons;
 	}
+
+	/**
+	 * This method gets one page of the purchased coupons (active) ordered by
+	 * the end date.
+	 * 
+	 * @param pageSize
+	 *            The number of coupons in the page
+	 * @param pageToken
+	 *            The token of the previous page or null for the first page
+	 * @return Page of Coupons
+	 * @throws NoRightsException
+	 * @throws FailedToGetListOfCouponsException 
+	 */
+	
+	@Override
+	public Page<Coupon> getAllPurchasedCoupons(int pageSize, String pageToken) throws NoRightsException, FailedToGetListOfCouponsException {
+		return couponDAO.getCoupons(ClientType.CUSTOMER, this.customer.getId(), pageSize, pageToken);
+	}
 	
 	/**
 	 * The method gets all active coupons by type.
@@ -96,6 +117,22 @@ public CustomerFacade (String custName) throws NotFoundException, FailedToExcept
 			coupons = couponDAO.getCouponByType(type, ClientType.CUSTOMER, this.customer.getId());
 		return coupons;
 	}
+
+	/**
+	 * This method finds the purchased coupons (active) by all the criteria of
+	 * the search in one query.
+	 * 
+	 * @param search
+	 *            The criteria of the search
+	 * @return coupons ArrayList of coupons
+	 * @throws NoRightsException
+	 * @throws FailedToGetListOfCouponsException 
+	 */
+	
+	@Override
+	public List<Coupon> searchCoupons(CouponSearch search) throws NoRightsException, FailedToGetListOfCouponsException {
+		return couponDAO.searchCoupons(search, ClientType.CUSTOMER, this.customer.getId());
+	}
 	
 	/**
 	 * The method gets all active coupons under the definite price.
@@ -5,18 +5,35 @@
 
 package javaBeans;
 
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.UUID;
 
 public class Company {
 
+	/** The version of the object that was not read from the database. */
+	public static final int ANY_VERSION = -1;
+
+	/**
+	 * The fields of the Company that are written to the database by the update.
+	 */
+
+	public enum Field {
+		COMP_NAME,
+		PASSWORD,
+		EMAIL,
+		ACTIVE
+	}
+
 	private String id;
 	private String compName;
 	private String password;
 	private String email;
 	private Set<Coupon> couponsOfCompany = new HashSet<Coupon>();
 	private boolean isActive = true;
+	private int version = ANY_VERSION;
+	private EnumSet<Field> changedFields;
 
 	/**
 	 * The class constructor that is used for creating a new company. It sets
@@ -80,6 +97,21 @@ public class Company {
 		this.email = "";
 	}
 
+	/**
+	 * The class constructor that is used for the partial update of the
+	 * existing Company without reading it. Only the fields that are set after
+	 * the construction are written to the database and the version is not
+	 * checked.
+	 * 
+	 * @param id
+	 *            Company's id
+	 */
+
+	public Company(String id) {
+		this.id = id;
+		this.changedFields = EnumSet.noneOf(Field.class);
+	}
+
 	/**
 	 * The method gets the Company's id.
 	 * 
@@ -120,6 +152,7 @@ public class Company {
 
 	public void setCompName(String compName) {
 		this.compName = compName;
+		changed(Field.COMP_NAME);
 	}
 
 	/**
@@ -141,6 +174,7 @@ public class Company {
 
 	public void setPassword(String password) {
 		this.password = password;
+		changed(Field.PASSWORD);
 	}
 
 	/**
@@ -162,6 +196,7 @@ public class Company {
 
 	public void setEmail(String email) {
 		this.email = email;
+		changed(Field.EMAIL);
 	}
 
 	/**
@@ -203,6 +238,57 @@ public class Company {
 
 	public void setActive(boolean isActive) {
 		this.isActive = isActive;
+		changed(Field.ACTIVE);
+	}
+
+	/**
+	 * The method gets the version of the Company's database record. It is
+	 * compared with the version in the database when the Company is updated.
+	 * 
+	 * @return version or ANY_VERSION if the Company was not read from the
+	 *         database
+	 */
+
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * The method sets the version of the Company's database record.
+	 * 
+	 * @param version
+	 *            the version that was read from the database
+	 */
+
+	public void setVersion(int version) {
+		this.version = version;
+	}
+
+	/**
+	 * The method gets the fields that were changed by the setters since the
+	 * Company was read from the database or updated. If the Company was created
+	 * by the constructor with all the fields, all of them are changed.
+	 * 
+	 * @return Set of the changed fields
+	 */
+
+	public Set<Field> getChangedFields() {
+		return changedFields == null ? EnumSet.allOf(Field.class) : EnumSet.copyOf(changedFields);
+	}
+
+	/**
+	 * The method marks all the fields as unchanged. It is used by the DAO
+	 * after the Company was read from the database or updated.
+	 */
+
+	public void clearChangedFields() {
+		changedFields = EnumSet.noneOf(Field.class);
+	}
+
+	private void changed(Field field) {
+		if (changedFields != null) {
+			changedFields.add(field);
+		}
 	}
 
 	/**
@@ -6,10 +6,30 @@
 package javaBeans;
 
 import java.sql.Date;
+import java.util.EnumSet;
+import java.util.Set;
 import java.util.UUID;
 
 public class Coupon {
 
+	/** The version of the object that was not read from the database. */
+	public static final int ANY_VERSION = -1;
+
+	/**
+	 * The fields of the Coupon that are written to the database by the update.
+	 */
+
+	public enum Field {
+		TITLE,
+		START_DATE,
+		END_DATE,
+		AMOUNT,
+		TYPE,
+		MESSAGE,
+		PRICE,
+		IMAGE
+	}
+
 	private String id;
 	private String title;
 	private Date startDate;
@@ -20,6 +40,8 @@ public class Coupon {
 	private double price;
 	private String image;
 	private boolean isActive = true;
+	private int version = ANY_VERSION;
+	private EnumSet<Field> changedFields;
 
 	/**
 	 * The class constructor that is used for creating a new coupon. It sets the
@@ -117,6 +139,21 @@ public class Coupon {
 		this.isActive = true;
 	}
 
+	/**
+	 * The class constructor that is used for the partial update of the
+	 * existing Coupon without reading it. Only the fields that are set after
+	 * the construction are written to the database and the version is not
+	 * checked.
+	 * 
+	 * @param id
+	 *            Coupon's id
+	 */
+
+	public Coupon(String id) {
+		this.id = id;
+		this.changedFields = EnumSet.noneOf(Field.class);
+	}
+
 	/**
 	 * The method gets Coupon's id.
 	 * 
@@ -157,6 +194,7 @@ public class Coupon {
 
 	public void setTitle(String title) {
 		this.title = title;
+		changed(Field.TITLE);
 	}
 
 	/**
@@ -178,6 +216,7 @@ public class Coupon {
 
 	public void setStartDate(Date startDate) {
 		this.startDate = startDate;
+		changed(Field.START_DATE);
 	}
 
 	/**
@@ -199,6 +238,7 @@ public class Coupon {
 
 	public void setEndDate(Date endDate) {
 		this.endDate = endDate;
+		changed(Field.END_DATE);
 	}
 
 	/**
@@ -220,6 +260,7 @@ public class Coupon {
 
 	public void setAmount(int amount) {
 		this.amount = amount;
+		changed(Field.AMOUNT);
 	}
 
 	/**
@@ -241,6 +282,7 @@ public class Coupon {
 
 	public void setType(CouponType type) {
 		this.type = type;
+		changed(Field.TYPE);
 	}
 
 	/**
@@ -262,6 +304,7 @@ public class Coupon {
 
 	public void setMessage(String message) {
 		this.message = message;
+		changed(Field.MESSAGE);
 	}
 
 	/**
@@ -282,6 +325,7 @@ public class Coupon {
 
 	public void setPrice(double price) {
 		this.price = price;
+		changed(Field.PRICE);
 	}
 
 	/**
@@ -303,6 +347,7 @@ public class Coupon {
 
 	public void setImage(String image) {
 		this.image = image;
+		changed(Field.IMAGE);
 	}
 
 	/**
@@ -326,6 +371,57 @@ public class Coupon {
 		this.isActive = isActive;
 	}
 
+	/**
+	 * The method gets the version of the Coupon's database record. It is
+	 * compared with the version in the database when the Coupon is updated.
+	 * Purchases don't change the version, only updates and removal do.
+	 * 
+	 * @return version or ANY_VERSION if the Coupon was not read from the
+	 *         database
+	 */
+
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * The method sets the version of the Coupon's database record.
+	 * 
+	 * @param version
+	 *            the version that was read from the database
+	 */
+
+	public void setVersion(int version) {
+		this.version = version;
+	}
+
+	/**
+	 * The method gets the fields that were changed by the setters since the
+	 * Coupon was read from the database or updated. If the Coupon was created
+	 * by the constructor with all the fields, all of them are changed.
+	 * 
+	 * @return Set of the changed fields
+	 */
+
+	public Set<Field> getChangedFields() {
+		return changedFields == null ? EnumSet.allOf(Field.class) : EnumSet.copyOf(changedFields);
+	}
+
+	/**
+	 * The method marks all the fields as unchanged. It is used by the DAO
+	 * after the Coupon was read from the database or updated.
+	 */
+
+	public void clearChangedFields() {
+		changedFields = EnumSet.noneOf(Field.class);
+	}
+
+	private void changed(Field field) {
+		if (changedFields != null) {
+			changedFields.add(field);
+		}
+	}
+
 	/**
 	 * The method returns a string with all Coupon's parameters
 	 */
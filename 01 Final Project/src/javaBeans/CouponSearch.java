@@ -0,0 +1,204 @@
+/**
+ * This class was designed as JavaBean for the criteria of the coupon search.
+ * Only the criteria that are set are used, the empty search finds all the
+ * active coupons of the client.
+ * @author Alexandra Shapira
+ */
+
+package javaBeans;
+
+import java.sql.Date;
+import java.util.EnumSet;
+import java.util.Set;
+
+public class CouponSearch {
+
+	private Set<CouponType> types = EnumSet.noneOf(CouponType.class);
+	private Double minPrice;
+	private Double maxPrice;
+	private Date endDateFrom;
+	private Date endDateTo;
+	private String titlePrefix;
+	private CouponSortOrder sortOrder = CouponSortOrder.END_DATE;
+	private int limit;
+
+	/**
+	 * The method gets the types of the coupons.
+	 * 
+	 * @return Set of CouponTypes, empty for any type
+	 */
+
+	public Set<CouponType> getTypes() {
+		return types;
+	}
+
+	/**
+	 * The method sets the types of the coupons.
+	 * 
+	 * @param types
+	 *            Set of CouponTypes, empty for any type
+	 */
+
+	public void setTypes(Set<CouponType> types) {
+		this.types = types;
+	}
+
+	/**
+	 * The method gets the lowest price (inclusive).
+	 * 
+	 * @return the price or null for no lower bound
+	 */
+
+	public Double getMinPrice() {
+		return minPrice;
+	}
+
+	/**
+	 * The method sets the lowest price (inclusive).
+	 * 
+	 * @param minPrice
+	 *            the price or null for no lower bound
+	 */
+
+	public void setMinPrice(Double minPrice) {
+		this.minPrice = minPrice;
+	}
+
+	/**
+	 * The method gets the price that the coupons must be under (exclusive).
+	 * 
+	 * @return the price or null for no upper bound
+	 */
+
+	public Double getMaxPrice() {
+		return maxPrice;
+	}
+
+	/**
+	 * The method sets the price that the coupons must be under (exclusive).
+	 * 
+	 * @param maxPrice
+	 *            the price or null for no upper bound
+	 */
+
+	public void setMaxPrice(Double maxPrice) {
+		this.maxPrice = maxPrice;
+	}
+
+	/**
+	 * The method gets the earliest end date (inclusive).
+	 * 
+	 * @return the date or null for no lower bound
+	 */
+
+	public Date getEndDateFrom() {
+		return endDateFrom;
+	}
+
+	/**
+	 * The method sets the earliest end date (inclusive).
+	 * 
+	 * @param endDateFrom
+	 *            the date or null for no lower bound
+	 */
+
+	public void setEndDateFrom(Date endDateFrom) {
+		this.endDateFrom = endDateFrom;
+	}
+
+	/**
+	 * The method gets the date that the deals must end before (exclusive).
+	 * 
+	 * @return the date or null for no upper bound
+	 */
+
+	public Date getEndDateTo() {
+		return endDateTo;
+	}
+
+	/**
+	 * The method sets the date that the deals must end before (exclusive).
+	 * 
+	 * @param endDateTo
+	 *            the date or null for no upper bound
+	 */
+
+	public void setEndDateTo(Date endDateTo) {
+		this.endDateTo = endDateTo;
+	}
+
+	/**
+	 * The method gets the beginning of the title.
+	 * 
+	 * @return the prefix or null for any title
+	 */
+
+	public String getTitlePrefix() {
+		return titlePrefix;
+	}
+
+	/**
+	 * The method sets the beginning of the title.
+	 * 
+	 * @param titlePrefix
+	 *            the prefix or null for any title
+	 */
+
+	public void setTitlePrefix(String titlePrefix) {
+		this.titlePrefix = titlePrefix;
+	}
+
+	/**
+	 * The method gets the order of the found coupons.
+	 * 
+	 * @return CouponSortOrder, END_DATE by default
+	 */
+
+	public CouponSortOrder getSortOrder() {
+		return sortOrder;
+	}
+
+	/**
+	 * The method sets the order of the found coupons.
+	 * 
+	 * @param sortOrder
+	 *            CouponSortOrder
+	 */
+
+	public void setSortOrder(CouponSortOrder sortOrder) {
+		this.sortOrder = sortOrder;
+	}
+
+	/**
+	 * The method gets the maximal number of the found coupons.
+	 * 
+	 * @return the number or 0 for no limit
+	 */
+
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * The method sets the maximal number of the found coupons.
+	 * 
+	 * @param limit
+	 *            the number or 0 for no limit
+	 */
+
+	public void setLimit(int limit) {
+		this.limit = limit;
+	}
+
+	/**
+	 * The method returns a string with all the criteria
+	 */
+
+	@Override
+	public String toString() {
+		return "Coupon Search: " + "\n" + "Types: " + types + "\n" + "Price: " + minPrice + " - " + maxPrice + "\n"
+				+ "End Date: " + endDateFrom + " - " + endDateTo + "\n" + "Title Prefix: " + titlePrefix + "\n"
+				+ "Sort Order: " + sortOrder + "\n" + "Limit: " + limit;
+	}
+
+}
@@ -0,0 +1,19 @@
+/**
+ * This ENUM class describes the orders of the coupons found by CouponSearch.
+ * 
+ * @author Alexandra Shapira
+ */
+
+package javaBeans;
+
+public enum CouponSortOrder {
+
+	/** The deals that end first go first. */
+	END_DATE,
+	/** The cheapest coupons go first. */
+	PRICE_ASC,
+	/** The most expensive coupons go first. */
+	PRICE_DESC,
+	/** The coupons are ordered by title. */
+	TITLE;
+}
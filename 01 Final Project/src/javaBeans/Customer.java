@@ -5,17 +5,33 @@
 
 package javaBeans;
 
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.UUID;
 
 public class Customer {
 
+	/** The version of the object that was not read from the database. */
+	public static final int ANY_VERSION = -1;
+
+	/**
+	 * The fields of the Customer that are written to the database by the update.
+	 */
+
+	public enum Field {
+		CUST_NAME,
+		PASSWORD,
+		ACTIVE
+	}
+
 	private String id;
 	private String custName;
 	private String password;
 	private Set<Coupon> couponsOfCustomer = new HashSet<Coupon>();
 	private boolean isActive = true;
+	private int version = ANY_VERSION;
+	private EnumSet<Field> changedFields;
 
 	/**
 	 * The class constructor that is used for creating a new Customer. It sets
@@ -73,6 +89,21 @@ public class Customer {
 		this.password = "";
 	}
 
+	/**
+	 * The class constructor that is used for the partial update of the
+	 * existing Customer without reading it. Only the fields that are set after
+	 * the construction are written to the database and the version is not
+	 * checked.
+	 * 
+	 * @param id
+	 *            Customer's id
+	 */
+
+	public Customer(String id) {
+		this.id = id;
+		this.changedFields = EnumSet.noneOf(Field.class);
+	}
+
 	/**
 	 * The method gets the Customer's's id.
 	 * 
@@ -113,6 +144,7 @@ public class Customer {
 
 	public void setCustName(String custName) {
 		this.custName = custName;
+		changed(Field.CUST_NAME);
 	}
 
 	/**
@@ -134,6 +166,7 @@ public class Customer {
 
 	public void setPassword(String password) {
 		this.password = password;
+		changed(Field.PASSWORD);
 	}
 
 	/**
@@ -175,6 +208,57 @@ public class Customer {
 
 	public void setActive(boolean isActive) {
 		this.isActive = isActive;
+		changed(Field.ACTIVE);
+	}
+
+	/**
+	 * The method gets the version of the Customer's database record. It is
+	 * compared with the version in the database when the Customer is updated.
+	 * 
+	 * @return version or ANY_VERSION if the Customer was not read from the
+	 *         database
+	 */
+
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * The method sets the version of the Customer's database record.
+	 * 
+	 * @param version
+	 *            the version that was read from the database
+	 */
+
+	public void setVersion(int version) {
+		this.version = version;
+	}
+
+	/**
+	 * The method gets the fields that were changed by the setters since the
+	 * Customer was read from the database or updated. If the Customer was created
+	 * by the constructor with all the fields, all of them are changed.
+	 * 
+	 * @return Set of the changed fields
+	 */
+
+	public Set<Field> getChangedFields() {
+		return changedFields == null ? EnumSet.allOf(Field.class) : EnumSet.copyOf(changedFields);
+	}
+
+	/**
+	 * The method marks all the fields as unchanged. It is used by the DAO
+	 * after the Customer was read from the database or updated.
+	 */
+
+	public void clearChangedFields() {
+		changedFields = EnumSet.noneOf(Field.class);
+	}
+
+	private void changed(Field field) {
+		if (changedFields != null) {
+			changedFields.add(field);
+		}
 	}
 
 	/**
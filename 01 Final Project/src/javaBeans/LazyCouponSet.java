@@ -0,0 +1,104 @@
+/**
+ * LazyCouponSet is the set of coupons of Company or Customer that reads the
+ * coupons from the database on the first access, so the lookups that don't
+ * need the coupons (login, updates) are a single-row query. After loading it
+ * behaves as an ordinary HashSet.
+ * @author Alexandra Shapira
+ */
+
+package javaBeans;
+
+import java.util.AbstractSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.locks.ReentrantLock;
+
+import exceptions.LazyLoadingException;
+
+public class LazyCouponSet extends AbstractSet<Coupon> {
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private Callable<Set<Coupon>> loader;
+	private volatile Set<Coupon> coupons;
+
+	/**
+	 * Class constructor.
+	 * 
+	 * @param loader
+	 *            The function that reads the coupons from the database
+	 */
+
+	public LazyCouponSet(Callable<Set<Coupon>> loader) {
+		this.loader = loader;
+	}
+
+	/**
+	 * The method checks if the coupons were already read from the database.
+	 * 
+	 * @return true if the set is loaded
+	 */
+
+	public boolean isLoaded() {
+		return coupons != null;
+	}
+
+	/**
+	 * The method reads the coupons on the first call and returns the loaded
+	 * set after that. The lock is used instead of synchronized, so a virtual
+	 * thread that waits for the database doesn't pin its carrier thread.
+	 * 
+	 * @return Set of Coupons
+	 */
+
+	private Set<Coupon> coupons() {
+		Set<Coupon> loaded = coupons;
+		if (loaded != null) {
+			return loaded;
+		}
+		lock.lock();
+		try {
+			if (coupons == null) {
+				coupons = new HashSet<Coupon>(loader.call());
+				loader = null;
+			}
+			return coupons;
+		} catch (Exception e) {
+			throw new LazyLoadingException(e);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Iterator<Coupon> iterator() {
+		return coupons().iterator();
+	}
+
+	@Override
+	public int size() {
+		return coupons().size();
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return coupons().contains(o);
+	}
+
+	@Override
+	public boolean add(Coupon coupon) {
+		return coupons().add(coupon);
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		return coupons().remove(o);
+	}
+
+	@Override
+	public void clear() {
+		coupons().clear();
+	}
+
+}
@@ -5,22 +5,39 @@
 
 package main;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import connection.ConnectionPoolSingleton;
 import dao.CompanyDAO;
 import dao.CouponDAO;
 import dao.CustomerDAO;
+import dbdao.AsyncDAOExecutor;
 import dbdao.CompanyDBDAO;
 import dbdao.CouponDBDAO;
 import dbdao.CustomerDBDAO;
+import dbdao.PurchaseJournal;
 import exceptions.FailedToException;
 import exceptions.NotFoundException;
 import facades.ClientType;
 import facades.CouponClientFacade;
 import facades.CouponClientFacadeSuperClass;
+import schema.IndexVerifier;
+import schema.SchemaMigrator;
 
 public class CouponSystemSingleton {
 
@@ -31,6 +48,9 @@ public class CouponSystemSingleton {
 	private DailyCouponExpirationTask task;
 	private ScheduledExecutorService scheduledExecutor;
 	private ConnectionPoolSingleton pool;
+	private ExecutorService facadeExecutor;
+	private Properties props;
+	private CompletableFuture<Void> readiness;
 
 	/**
 	 * The inner class CouponSystemSingletonHolder was designed as a part of
@@ -47,18 +67,102 @@ public class CouponSystemSingleton {
 	}
 
 	/**
-	 * Class constructor that initializes DAO layer and launches the
-	 * DailyCouponExpirationTask.
+	 * Class constructor that starts the migration of the database schema,
+	 * initializes DAO layer, the executor of facade operations and launches
+	 * the DailyCouponExpirationTask. The constructor does not wait for the
+	 * database, getReadiness() tells when the warm-up and the migration are
+	 * over.
 	 */
 
 	private CouponSystemSingleton() {
+		props = loadProperties();
 		pool = ConnectionPoolSingleton.getInstance();
+		CompletableFuture<Void> migration = CompletableFuture.completedFuture(null);
+		if (Boolean.parseBoolean(props.getProperty("migrateSchema", "true"))) {
+			migration = migrateSchema();
+		}
+		readiness = pool.getReadiness().thenCombine(migration, (warmedUp, migrated) -> null);
 		companyDAO = new CompanyDBDAO();
 		customerDAO = new CustomerDBDAO();
 		couponDAO = new CouponDBDAO();
 		task = new DailyCouponExpirationTask();
 		scheduledExecutor = new ScheduledThreadPoolExecutor(1);
 		scheduledExecutor.scheduleAtFixedRate(task, 1, 24, TimeUnit.HOURS);
+		facadeExecutor = createFacadeExecutor();
+	}
+
+	private Properties loadProperties() {
+		Properties props = new Properties();
+		try (InputStream is = this.getClass().getClassLoader().getResourceAsStream("coupons.properties")) {
+			if (is != null) {
+				props.load(is);
+			}
+		} catch (IOException ex) {
+			throw new RuntimeException(ex);
+		}
+		return props;
+	}
+
+	/**
+	 * The method applies the schema migrations that were not applied yet and,
+	 * if verifyIndexes is set in coupons.properties, reports the DAO queries
+	 * that don't use an index. The migration runs in its own thread, because
+	 * it may wait for the database and for the lock of the schema. The system
+	 * keeps starting if the migration fails, but it is not ready.
+	 * 
+	 * @return CompletableFuture that fails with the exception of the migration
+	 */
+
+	private CompletableFuture<Void> migrateSchema() {
+		CompletableFuture<Void> migration = new CompletableFuture<Void>();
+		Thread thread = new Thread(() -> {
+			try {
+				new SchemaMigrator(pool).migrate();
+				if (Boolean.parseBoolean(props.getProperty("verifyIndexes", "false"))) {
+					for (String problem : verifyIndexes()) {
+						System.err.println(problem);
+					}
+				}
+				migration.complete(null);
+			} catch (SQLException | RuntimeException e) {
+				e.printStackTrace();
+				migration.completeExceptionally(e);
+			}
+		}, "schema-migration");
+		thread.setDaemon(true);
+		thread.start();
+		return migration;
+	}
+
+	/**
+	 * The method checks by EXPLAIN that the DAO queries use indexes.
+	 * 
+	 * @return List of the queries that read a whole table
+	 * @throws SQLException
+	 */
+
+	public List<String> verifyIndexes() throws SQLException {
+		return new IndexVerifier(pool).verify();
+	}
+
+	/**
+	 * The method creates the executor of facade operations according to
+	 * coupons.properties. The virtual thread executor is looked up by
+	 * reflection, so the system still runs on Java 8.
+	 * 
+	 * @return ExecutorService
+	 */
+
+	private ExecutorService createFacadeExecutor() {
+		ExecutionMode mode = ExecutionMode.valueOf(props.getProperty("executionMode", "PLATFORM"));
+		if (mode == ExecutionMode.VIRTUAL) {
+			try {
+				return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			} catch (ReflectiveOperationException e) {
+				System.err.println("Virtual threads are not supported, platform threads are used");
+			}
+		}
+		return Executors.newFixedThreadPool(Integer.parseInt(props.getProperty("platformThreads", "20")));
 	}
 	
 	/**
@@ -80,12 +184,95 @@ public class CouponSystemSingleton {
 		return cf;
 	}
 	
+	/**
+	 * The method runs the facade operation on the facade executor. In the
+	 * VIRTUAL mode every operation gets its own virtual thread and waits for
+	 * a database connection without holding a platform thread.
+	 * 
+	 * @param operation
+	 *            The facade operation
+	 * @return CompletableFuture of the result, it fails with the exception of
+	 *         the operation
+	 */
+
+	public <T> CompletableFuture<T> submit(Callable<T> operation) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return operation.call();
+			} catch (Exception e) {
+				throw new CompletionException(e);
+			}
+		}, facadeExecutor);
+	}
+
+	/**
+	 * The method logs in on the facade executor.
+	 * 
+	 * @param name
+	 *            The username (Company's or Customer's name)
+	 * @param password
+	 *            Password
+	 * @param type
+	 *            Enum ClientType (ADMIN, COMPANY or CUSTOMER)
+	 * @return CompletableFuture of the facade
+	 */
+
+	public CompletableFuture<CouponClientFacade> loginAsync(String name, String password, ClientType type) {
+		return submit(() -> login(name, password, type));
+	}
+
+	/**
+	 * The method gets the future that is completed when the system is ready to
+	 * serve the clients (the connection pool is warmed up and the schema is
+	 * migrated). The future fails if the warm-up or the migration failed.
+	 * 
+	 * @return CompletableFuture of the readiness
+	 */
+
+	public CompletableFuture<Void> getReadiness() {
+		return readiness;
+	}
+
+	/**
+	 * The method checks if the system is ready to serve the clients.
+	 * 
+	 * @return true if the warm-up and the migration are over and succeeded
+	 */
+
+	public boolean isReady() {
+		return readiness.isDone() && !readiness.isCompletedExceptionally();
+	}
+
+	/**
+	 * The method waits until the system is ready to serve the clients, but no
+	 * longer than the timeout.
+	 * 
+	 * @param timeout
+	 *            The maximum time to wait
+	 * @return true if the system is ready
+	 */
+
+	public boolean awaitReady(Duration timeout) {
+		try {
+			readiness.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+			return true;
+		} catch (TimeoutException | ExecutionException e) {
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
 	/**
 	 * This method is used for closing the system.
 	 */
 
 	public void shutdown() {
 		scheduledExecutor.shutdown();
+		facadeExecutor.shutdown();
+		AsyncDAOExecutor.shutdown();
+		PurchaseJournal.shutdown();
 		pool.closeAllConnections();
 
 	}
@@ -0,0 +1,20 @@
+/**
+ * The enum class that defines the threads that run facade operations
+ * submitted to CouponSystemSingleton.
+ * 
+ * @author Alexandra Shapira
+ */
+
+package main;
+
+public enum ExecutionMode {
+
+	/** A fixed pool of platform threads. */
+	PLATFORM,
+	/**
+	 * A new virtual thread for every operation. It needs Java 21 or newer, on
+	 * the older Java the PLATFORM mode is used instead.
+	 */
+	VIRTUAL;
+
+}
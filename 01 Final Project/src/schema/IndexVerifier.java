@@ -0,0 +1,69 @@
+/**
+ * IndexVerifier runs EXPLAIN for the queries of the DAO classes and reports
+ * the queries that read a whole table instead of using an index. The queries
+ * are taken from dbdao.Queries, the same SQL the DAO classes run. MySQL may
+ * prefer the full scan of a very small table, so the verification is
+ * meaningful on a database with realistic data.
+ * @author Alexandra Shapira
+ */
+
+package schema;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import connection.ConnectionPoolSingleton;
+import dbdao.Queries;
+
+public class IndexVerifier {
+
+	private ConnectionPoolSingleton pool;
+
+	/**
+	 * Class constructor.
+	 * 
+	 * @param pool
+	 *            The pool of the primary database
+	 */
+
+	public IndexVerifier(ConnectionPoolSingleton pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * The method explains every query and collects the tables that the query
+	 * reads without an index, except the queries that read the whole table by
+	 * design.
+	 * 
+	 * @return List of problems, empty if all the queries use indexes
+	 * @throws SQLException
+	 */
+
+	public List<String> verify() throws SQLException {
+		List<String> problems = new ArrayList<String>();
+		try (Connection connection = pool.getConnection()) {
+			for (Queries.Shape query : Queries.getShapes()) {
+				try (PreparedStatement preparedStatement = connection
+						.prepareStatement("EXPLAIN " + query.getSql())) {
+					Object[] parameters = query.getParameters();
+					for (int i = 0; i < parameters.length; i++) {
+						preparedStatement.setObject(i + 1, parameters[i]);
+					}
+					try (ResultSet rs = preparedStatement.executeQuery()) {
+						while (rs.next()) {
+							if ("ALL".equals(rs.getString("type")) && !query.isScanExpected()) {
+								problems.add("Full scan of " + rs.getString("table") + " in: " + query.getSql());
+							}
+						}
+					}
+				}
+			}
+		}
+		return problems;
+	}
+
+}
@@ -0,0 +1,200 @@
+/**
+ * SchemaMigrator creates and upgrades the tables and indexes of the coupons
+ * database. The migrations are the SQL scripts in this package named
+ * V<version>__<description>.sql. The applied versions are kept in the
+ * schema_version table, so every script runs once and migrate() may be called
+ * at every start of the system.
+ * @author Alexandra Shapira
+ */
+
+package schema;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+import connection.ConnectionPoolSingleton;
+
+public class SchemaMigrator {
+
+	/** The scripts in the order of their versions. */
+	private static final String[] MIGRATIONS = {
+			"V1__create_tables.sql",
+			"V2__create_indexes.sql",
+			"V3__add_version_columns.sql" };
+
+	/** MySQL error of CREATE INDEX when the index already exists. */
+	private static final int ER_DUP_KEYNAME = 1061;
+	/** MySQL error of ADD COLUMN when the column already exists. */
+	private static final int ER_DUP_FIELDNAME = 1060;
+	private static final String LOCK_NAME = "coupons_schema";
+	private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+	private ConnectionPoolSingleton pool;
+
+	/**
+	 * Class constructor.
+	 * 
+	 * @param pool
+	 *            The pool of the primary database
+	 */
+
+	public SchemaMigrator(ConnectionPoolSingleton pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * The method applies the migrations that were not applied yet. The named
+	 * lock of MySQL keeps two systems that start together from running the same
+	 * script twice.
+	 * 
+	 * @return the number of applied migrations
+	 * @throws SQLException
+	 */
+
+	public int migrate() throws SQLException {
+		int applied = 0;
+		try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement()) {
+			statement.execute("CREATE TABLE IF NOT EXISTS schema_version ("
+					+ "VERSION INT NOT NULL, "
+					+ "DESCRIPTION VARCHAR(255) NOT NULL, "
+					+ "APPLIED_AT TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+					+ "PRIMARY KEY (VERSION))");
+			lock(connection);
+			try {
+				int currentVersion = getCurrentVersion(connection);
+				for (String migration : MIGRATIONS) {
+					int version = version(migration);
+					if (version > currentVersion) {
+						apply(connection, statement, migration, version);
+						applied++;
+					}
+				}
+			} finally {
+				try (ResultSet rs = statement.executeQuery("SELECT RELEASE_LOCK('" + LOCK_NAME + "')")) {
+					rs.next();
+				}
+			}
+		}
+		return applied;
+	}
+
+	/**
+	 * The method gets the version of the database schema.
+	 * 
+	 * @return the last applied version or 0 if there is none
+	 * @throws SQLException
+	 */
+
+	public int getCurrentVersion() throws SQLException {
+		try (Connection connection = pool.getConnection()) {
+			return getCurrentVersion(connection);
+		}
+	}
+
+	private int getCurrentVersion(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement();
+				ResultSet rs = statement.executeQuery("SELECT MAX(VERSION) FROM schema_version")) {
+			return rs.next() ? rs.getInt(1) : 0;
+		}
+	}
+
+	private void lock(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement();
+				ResultSet rs = statement
+						.executeQuery("SELECT GET_LOCK('" + LOCK_NAME + "', " + LOCK_TIMEOUT_SECONDS + ")")) {
+			if (!rs.next() || rs.getInt(1) != 1) {
+				throw new SQLException("Failed to lock the schema for the migration");
+			}
+		}
+	}
+
+	/**
+	 * The method runs the statements of the script and records its version.
+	 * MySQL commits every DDL statement, so an index or a column that was created
+	 * before a failure is skipped when the script runs again.
+	 * 
+	 * @param connection
+	 *            The connection
+	 * @param statement
+	 *            The statement of the connection
+	 * @param migration
+	 *            The name of the script
+	 * @param version
+	 *            The version of the script
+	 * @throws SQLException
+	 */
+
+	private void apply(Connection connection, Statement statement, String migration, int version)
+			throws SQLException {
+		for (String sql : readStatements(migration)) {
+			try {
+				statement.execute(sql);
+			} catch (SQLException e) {
+				if (e.getErrorCode() != ER_DUP_KEYNAME && e.getErrorCode() != ER_DUP_FIELDNAME) {
+					throw e;
+				}
+			}
+		}
+		try (PreparedStatement preparedStatement = connection
+				.prepareStatement("INSERT INTO schema_version (VERSION, DESCRIPTION) VALUES (?, ?)")) {
+			preparedStatement.setInt(1, version);
+			preparedStatement.setString(2, description(migration));
+			preparedStatement.executeUpdate();
+		}
+	}
+
+	/**
+	 * The method reads the script and splits it into statements. The lines
+	 * that start with -- are comments.
+	 * 
+	 * @param migration
+	 *            The name of the script
+	 * @return List of SQL statements
+	 * @throws SQLException
+	 *             if the script can't be read
+	 */
+
+	static List<String> readStatements(String migration) throws SQLException {
+		StringBuilder script = new StringBuilder();
+		try (InputStream is = SchemaMigrator.class.getResourceAsStream(migration)) {
+			if (is == null) {
+				throw new SQLException("Migration script not found: " + migration);
+			}
+			try (Scanner scanner = new Scanner(is, StandardCharsets.UTF_8.name())) {
+				while (scanner.hasNextLine()) {
+					String line = scanner.nextLine();
+					if (!line.trim().startsWith("--")) {
+						script.append(line).append('\n');
+					}
+				}
+			}
+		} catch (IOException e) {
+			throw new SQLException("Failed to read the migration script " + migration, e);
+		}
+		List<String> statements = new ArrayList<String>();
+		for (String sql : script.toString().split(";")) {
+			if (!sql.trim().isEmpty()) {
+				statements.add(sql.trim());
+			}
+		}
+		return statements;
+	}
+
+	private static int version(String migration) {
+		return Integer.parseInt(migration.substring(1, migration.indexOf("__")));
+	}
+
+	private static String description(String migration) {
+		return migration.substring(migration.indexOf("__") + 2, migration.lastIndexOf('.')).replace('_', ' ');
+	}
+
+}
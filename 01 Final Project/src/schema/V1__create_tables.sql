@@ -0,0 +1,49 @@
+-- The tables of the coupon system. IF NOT EXISTS keeps the databases that
+-- were created by hand before the schema module.
+
+CREATE TABLE IF NOT EXISTS company (
+	ID VARCHAR(36) NOT NULL,
+	COMP_NAME VARCHAR(255) NOT NULL,
+	PASSWORD VARCHAR(255) NOT NULL,
+	EMAIL VARCHAR(255),
+	IS_ACTIVE BOOLEAN NOT NULL DEFAULT TRUE,
+	PRIMARY KEY (ID)
+);
+
+CREATE TABLE IF NOT EXISTS customer (
+	ID VARCHAR(36) NOT NULL,
+	CUST_NAME VARCHAR(255) NOT NULL,
+	PASSWORD VARCHAR(255) NOT NULL,
+	IS_ACTIVE BOOLEAN NOT NULL DEFAULT TRUE,
+	PRIMARY KEY (ID)
+);
+
+CREATE TABLE IF NOT EXISTS coupon (
+	ID VARCHAR(36) NOT NULL,
+	TITLE VARCHAR(255) NOT NULL,
+	START_DATE DATE,
+	END_DATE DATE,
+	AMOUNT INT NOT NULL DEFAULT 0,
+	TYPE VARCHAR(30) NOT NULL,
+	MESSAGE VARCHAR(1024),
+	PRICE DOUBLE NOT NULL DEFAULT 0,
+	IMAGE VARCHAR(1024),
+	IS_ACTIVE BOOLEAN NOT NULL DEFAULT TRUE,
+	PRIMARY KEY (ID)
+);
+
+CREATE TABLE IF NOT EXISTS company_coupon (
+	COMP_ID VARCHAR(36) NOT NULL,
+	COUPON_ID VARCHAR(36) NOT NULL,
+	IS_ACTIVE BOOLEAN NOT NULL DEFAULT TRUE,
+	PRIMARY KEY (COMP_ID, COUPON_ID)
+);
+
+-- a customer may buy the coupon again after the purchase was deactivated
+CREATE TABLE IF NOT EXISTS customer_coupon (
+	ID BIGINT NOT NULL AUTO_INCREMENT,
+	CUST_ID VARCHAR(36) NOT NULL,
+	COUPON_ID VARCHAR(36) NOT NULL,
+	IS_ACTIVE BOOLEAN NOT NULL DEFAULT TRUE,
+	PRIMARY KEY (ID)
+);
@@ -0,0 +1,25 @@
+-- The indexes of the DAO queries. The primary key of company_coupon already
+-- serves the lookups by COMP_ID.
+
+-- login and getCompanyByParameter(COMP_NAME)
+CREATE INDEX IDX_COMPANY_NAME ON company (COMP_NAME);
+-- the listings and the pages of active companies ordered by ID
+CREATE INDEX IDX_COMPANY_ACTIVE ON company (IS_ACTIVE, ID);
+
+-- login and getCustomerByParameter(CUST_NAME)
+CREATE INDEX IDX_CUSTOMER_NAME ON customer (CUST_NAME);
+-- the listings and the pages of active customers ordered by ID
+CREATE INDEX IDX_CUSTOMER_ACTIVE ON customer (IS_ACTIVE, ID);
+
+-- the listings and the search of active coupons by type, price and end date
+CREATE INDEX IDX_COUPON_SEARCH ON coupon (IS_ACTIVE, TYPE, PRICE, END_DATE);
+-- deleteExpiredCoupons and the pages ordered by END_DATE
+CREATE INDEX IDX_COUPON_END_DATE ON coupon (END_DATE, ID);
+
+-- releasedByCompany and removeCoupon go from the coupon to its company
+CREATE INDEX IDX_COMPANY_COUPON_COUPON ON company_coupon (COUPON_ID);
+
+-- covers the coupons of the customer and the purchase checks
+CREATE INDEX IDX_CUSTOMER_COUPON ON customer_coupon (CUST_ID, COUPON_ID, IS_ACTIVE);
+-- removeCoupon and deleteExpiredCoupons go from the coupon to its customers
+CREATE INDEX IDX_CUSTOMER_COUPON_COUPON ON customer_coupon (COUPON_ID);
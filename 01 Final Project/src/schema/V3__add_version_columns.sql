@@ -0,0 +1,9 @@
+-- The versions of the records for the optimistic locking. Every UPDATE of
+-- the record increments its VERSION, the update of the DAO succeeds only if
+-- the record still has the VERSION that was read.
+
+ALTER TABLE company ADD COLUMN VERSION INT NOT NULL DEFAULT 0;
+
+ALTER TABLE customer ADD COLUMN VERSION INT NOT NULL DEFAULT 0;
+
+ALTER TABLE coupon ADD COLUMN VERSION INT NOT NULL DEFAULT 0;